@@ -0,0 +1,120 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the PizzaStore paths that talk to the database, run
+ * against a Postgres seeded from data/ (see scripts/bench.sh).  The
+ * database is named by -Dpizzastore.bench.db, .port and .user.
+ *
+ * placeOrder commits a real order on every invocation, so the FoodOrder
+ * table grows while it runs; reseed before comparing runs of it.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DataAccessBenchmark {
+
+   // a user and a store of the shipped data set
+   @Param("mfarrears0")
+   public String login;
+
+   @Param("dshimoni0")
+   public String password;
+
+   @Param("1")
+   public int storeID;
+
+   private PizzaStore _esql;
+   private OrderWriter _writer;
+
+   @Setup(Level.Trial)
+   public void connect() throws Exception {
+      Class.forName("org.postgresql.Driver");
+      this._esql = new PizzaStore(System.getProperty("pizzastore.bench.db"),
+                                  System.getProperty("pizzastore.bench.port", "5432"),
+                                  System.getProperty("pizzastore.bench.user", System.getProperty("user.name")), "");
+      // render into the void, so the benchmark measures formatting, not the terminal
+      this._esql.setPrinter(new ResultPrinter(ResultPrinter.Format.TSV, 100, 0, new PrintStream(new OutputStream() {
+         public void write(int b) {
+         }
+         public void write(byte[] b, int off, int len) {
+         }
+      })));
+      this._writer = new OrderWriter(this._esql);
+   }//end connect
+
+   @TearDown(Level.Trial)
+   public void disconnect() throws Exception {
+      this._esql.cleanup();
+   }//end disconnect
+
+   /**
+    * Decoding a result into strings, as executeQueryAndReturnResult does.
+    */
+   @Benchmark
+   public List<List<String>> returnResult() throws Exception {
+      return this._esql.executeQueryAndReturnResult(Queries.MENU_ITEMS);
+   }//end returnResult
+
+   /**
+    * Rendering a result through the paged printer.
+    */
+   @Benchmark
+   public int printResult() throws Exception {
+      return this._esql.executeQueryAndPrintResult(Queries.MENU_ITEMS);
+   }//end printResult
+
+   /**
+    * The LogIn lookup.
+    */
+   @Benchmark
+   public Session logIn() throws Exception {
+      return this._esql.queryForObject(Queries.LOGIN, Session.MAPPER, this.login, this.password);
+   }//end logIn
+
+   /**
+    * The full placeOrder write path: pricing, id allocation, the order row
+    * and its batched lines in one transaction.
+    */
+   @Benchmark
+   public boolean placeOrder() throws Exception {
+      Order order = new Order(this.login, this.storeID);
+      order.addItem("Cheese Pizza", 2);
+      order.addItem("Pepperoni Pizza", 1);
+      order.addItem("Sprite", 3);
+      return this._writer.place(order);
+   }//end placeOrder
+
+}//end DataAccessBenchmark
@@ -0,0 +1,81 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the in-memory menu: the price lookup placeOrder does for
+ * every line, and the viewMenu filters and search.  No database is needed;
+ * the snapshot is built from a synthetic menu of the given size.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MenuBenchmark {
+
+   private static final String[] TYPES = { " entree", " sides", " drinks" };
+
+   @Param({ "26", "10000" })
+   public int items;
+
+   private MenuCache.Menu _menu;
+   private String _name;
+
+   @Setup
+   public void build() {
+      List<MenuItem> menu = new ArrayList<MenuItem>(this.items);
+      for (int i = 0; i < this.items; ++i)
+         menu.add(new MenuItem("Item " + i, "Cheese, Bread, Ingredient" + (i % 50), TYPES[i % TYPES.length],
+                               199 + (i * 37) % 1500, "item number " + i));
+      this._menu = new MenuCache.Menu(menu);
+      this._name = "Item " + (this.items / 2);
+   }//end build
+
+   @Benchmark
+   public long priceLookup() {
+      return this._menu.get(this._name).getPriceCents();
+   }//end priceLookup
+
+   @Benchmark
+   public List<MenuItem> byType() {
+      return this._menu.byType("Drinks");
+   }//end byType
+
+   @Benchmark
+   public List<MenuItem> atMost() {
+      return this._menu.atMost(999);
+   }//end atMost
+
+   @Benchmark
+   public List<MenuItem> search() {
+      return this._menu.search("ingredient4 cheese", PizzaStore.SEARCH_LIMIT);
+   }//end search
+
+}//end MenuBenchmark
@@ -0,0 +1,39 @@
+#!/bin/bash
+DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+
+# JMH is not bundled: point JMH_CP at jmh-core, jmh-generator-annprocess and
+# their dependencies (jopt-simple, commons-math3), colon separated.
+# PGJDBC may name a newer driver than the bundled one.
+if [ -z "$JMH_CP" ]; then
+  echo "Set JMH_CP to the JMH jars (jmh-core, jmh-generator-annprocess, jopt-simple, commons-math3)"
+  exit 1
+fi
+PGJDBC=${PGJDBC:-$DIR/../lib/pg73jdbc3.jar}
+DB=${BENCH_DB:-$USER"_pizzastore_bench"}
+OUT=$DIR/../bench-classes
+RESULTS=$DIR/../bench-results
+mkdir -p $OUT $RESULTS
+
+# compile the program and the benchmarks; the annotation processor generates the harness
+javac -d $OUT -cp $PGJDBC:$JMH_CP -processorpath $JMH_CP $DIR/../src/*.java $DIR/../bench/*.java || exit 1
+
+# seed a fresh benchmark database from data/ on the local server at $PGPORT,
+# unless asked to reuse it
+if [ -z "$BENCH_REUSE_DB" ]; then
+  dropdb -p $PGPORT --if-exists $DB
+  createdb -p $PGPORT $DB || exit 1
+  psql -q -p $PGPORT $DB < $DIR/../../sql/src/create_tables.sql
+  psql -q -p $PGPORT $DB < $DIR/../../sql/src/create_indexes.sql
+  java -cp $OUT:$PGJDBC BulkLoader $DB $PGPORT $USER $DIR/../../data 2>/dev/null \
+    || (cd $DIR/../../data && for t in users items store \
+          "foodorder (orderID, login, storeID, totalPrice, orderTimestamp, orderStatus)" itemsinorder; do
+          psql -q -p $PGPORT $DB -c "\\copy $t FROM '${t%% *}.csv' WITH DELIMITER ',' CSV HEADER"; done
+        psql -q -p $PGPORT $DB -c "SELECT setval('FoodOrder_orderID_seq', (SELECT MAX(orderID) + 1 FROM FoodOrder), false)")
+fi
+
+# run, with the GC profiler for allocation rates, writing JSON for comparison between runs.
+# extra arguments go to JMH, e.g. bench.sh MenuBenchmark -f 3
+# the forked benchmark JVMs only see properties passed through -jvmArgsAppend
+java -cp $OUT:$PGJDBC:$JMH_CP org.openjdk.jmh.Main \
+  -jvmArgsAppend "-Dpizzastore.bench.db=$DB -Dpizzastore.bench.port=$PGPORT -Dpizzastore.bench.user=$USER" \
+  -prof gc -rf json -rff $RESULTS/bench-$(date +%Y%m%d-%H%M%S).json "$@"
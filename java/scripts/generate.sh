@@ -0,0 +1,12 @@
+#!/bin/bash
+DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+
+# compile the java program
+javac -d $DIR/../classes -cp $DIR/../lib/pg73jdbc3.jar $DIR/../src/*.java
+
+# write a synthetic data set to the given directory (default: generated/),
+# e.g. generate.sh /tmp/big --orders=10000000 --users=1000000 --seed=7
+# then load it with: java -cp ... BulkLoader <db> <port> <user> /tmp/big
+OUT=${1:-$DIR/../../generated}
+shift
+java -cp $DIR/../classes DataGenerator $OUT --items=$DIR/../../data/items.csv "$@"
@@ -0,0 +1,11 @@
+#!/bin/bash
+DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+
+# compile the java program
+javac -d $DIR/../classes -cp $DIR/../lib/pg73jdbc3.jar $DIR/../src/*.java
+
+# stream the CSV files of data/ into the (empty) tables over COPY FROM STDIN.
+# COPY FROM STDIN needs a JDBC driver with org.postgresql.copy.CopyManager;
+# point PGJDBC at one (e.g. postgresql-42.x.jar), the bundled driver predates it.
+PGJDBC=${PGJDBC:-$DIR/../lib/pg73jdbc3.jar}
+java -cp $DIR/../classes:$PGJDBC BulkLoader $USER"_project_phase_3_DB" $PGPORT $USER $DIR/../../data
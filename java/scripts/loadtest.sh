@@ -0,0 +1,11 @@
+#!/bin/bash
+DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+
+# compile the java program
+javac -d $DIR/../classes -cp $DIR/../lib/pg73jdbc3.jar $DIR/../src/*.java
+
+# drive the database with simulated customers, drivers and managers, e.g.
+# loadtest.sh --users=64 --mix=80/15/5 --target-rate=500 --duration=120 --out=results.tsv
+# raise -Dpizzastore.pool.max with the number of users to measure the database, not the pool
+java -Dpizzastore.pool.max=${POOL_MAX:-16} -cp $DIR/../classes:$DIR/../lib/pg73jdbc3.jar LoadGenerator \
+  $USER"_project_phase_3_DB" $PGPORT $USER "$@"
@@ -0,0 +1,11 @@
+#!/bin/bash
+DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+
+# compile the java program
+javac -d $DIR/../classes -cp $DIR/../lib/pg73jdbc3.jar $DIR/../src/*.java
+
+# serve the store over HTTP on localhost (default port 8080), e.g.
+# curl -d 'login=...&password=...' localhost:8080/login
+# requests run on virtual threads with Java 21+; size the connection pool for the database, not the clients
+java -Dpizzastore.pool.max=${POOL_MAX:-16} -cp $DIR/../classes:$DIR/../lib/pg73jdbc3.jar PizzaServer \
+  $USER"_project_phase_3_DB" $PGPORT $USER ${HTTP_PORT:-8080}
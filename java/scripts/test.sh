@@ -0,0 +1,14 @@
+#!/bin/bash
+DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+OUT=$DIR/../test-classes
+mkdir -p $OUT
+
+# compile the program and the tests; the tests need no database and no test framework
+javac -d $OUT -cp $DIR/../lib/pg73jdbc3.jar $DIR/../src/*.java $DIR/../test/*.java || exit 1
+
+# run every test class, failing when any of them fails
+STATUS=0
+for t in $DIR/../test/*Test.java; do
+  java -ea -cp $OUT:$DIR/../lib/pg73jdbc3.jar $(basename $t .java) || STATUS=1
+done
+exit $STATUS
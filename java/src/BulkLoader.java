@@ -0,0 +1,310 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads the CSV files of the data directory from the client with
+ * COPY ... FROM STDIN, so the files do not have to sit on the database
+ * host.  Users, Items and Store do not reference each other and are loaded
+ * in parallel, each on its own connection; FoodOrder and then ItemsInOrder
+ * follow once the rows they reference exist.  Secondary indexes are dropped
+ * for the load and rebuilt afterwards, which is much cheaper than
+ * maintaining them row by row.
+ *
+ * The tables must exist and be empty.  COPY FROM STDIN needs the
+ * org.postgresql.copy.CopyManager API of a newer JDBC driver than the one
+ * in lib/; it is looked up at run time so the program still compiles and
+ * runs against the old driver.
+ *
+ */
+public class BulkLoader {
+
+   // tables without foreign keys between them, loaded concurrently
+   private static final String[] INDEPENDENT = { "Users", "Items", "Store" };
+
+   // tables loaded afterwards, one at a time, in this order
+   private static final String[] DEPENDENT = { "FoodOrder", "ItemsInOrder" };
+
+   // columns of tables whose CSV files leave out trailing columns, which take their defaults
+   private static final Map<String, String> COLUMNS = Collections.singletonMap("FoodOrder",
+      " (orderID, login, storeID, totalPrice, orderTimestamp, orderStatus)");
+
+   // bytes read from a file per system call
+   private static final int BUFFER_SIZE = Integer.getInteger("pizzastore.load.bufferSize", 1 << 20);
+
+   private final ConnectionPool _pool;
+   private final File _dataDir;
+
+   /**
+    * @param pool where the loading connections come from; it should allow
+    *        one connection per independent table
+    * @param dataDir the directory holding users.csv, items.csv, ...
+    */
+   public BulkLoader(ConnectionPool pool, File dataDir) {
+      this._pool = pool;
+      this._dataDir = dataDir;
+   }//end BulkLoader
+
+   /**
+    * Loads every table, rebuilds the indexes and moves the order id
+    * sequence past the loaded orders.
+    *
+    * @return the total number of rows loaded
+    * @throws java.sql.SQLException when a table cannot be loaded
+    * @throws java.io.IOException when a file cannot be read
+    */
+   public long load() throws SQLException, IOException {
+      long start = System.nanoTime();
+      List<String> indexes = dropIndexes();
+      long rows = 0;
+      try {
+         rows += loadParallel(INDEPENDENT);
+         for (String table : DEPENDENT)
+            rows += copy(table);
+      } finally {
+         // rebuilt even after a failure, so a partial load leaves the schema intact
+         createIndexes(indexes);
+      }//end try
+      finish();
+      report("total", rows, System.nanoTime() - start);
+      return rows;
+   }//end load
+
+   private long loadParallel(String[] tables) throws SQLException, IOException {
+      ExecutorService workers = Executors.newFixedThreadPool(tables.length);
+      try {
+         List<Future<Long>> loads = new ArrayList<Future<Long>>(tables.length);
+         for (final String table : tables)
+            loads.add(workers.submit(() -> copy(table)));
+         long rows = 0;
+         for (Future<Long> load : loads)
+            rows += load.get();
+         return rows;
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new SQLException("Interrupted while loading");
+      } catch (ExecutionException e) {
+         throw rethrow(e.getCause());
+      } finally {
+         workers.shutdownNow();
+      }//end try
+   }//end loadParallel
+
+   /*
+    * Streams one CSV file into its table on a connection of its own.
+    **/
+   private long copy(String table) throws SQLException, IOException {
+      File file = new File(this._dataDir, table.toLowerCase() + ".csv");
+      long start = System.nanoTime();
+      ConnectionPool.PooledConnection pc = this._pool.borrow();
+      try {
+         Object copyApi = copyApi(pc.getConnection());
+         Method copyIn = copyApi.getClass().getMethod("copyIn", String.class, InputStream.class, int.class);
+         InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+         long rows;
+         try {
+            rows = (Long) copyIn.invoke(copyApi, "COPY " + table + COLUMNS.getOrDefault(table, "")
+                                        + " FROM STDIN WITH DELIMITER ',' CSV HEADER",
+                                        in, BUFFER_SIZE);
+         } finally {
+            in.close();
+         }//end try
+         this._pool.release(pc);
+         report(table, rows, System.nanoTime() - start);
+         return rows;
+      } catch (InvocationTargetException e) {
+         Throwable cause = e.getCause();
+         this._pool.release(pc, cause instanceof SQLException ? (SQLException) cause : null);
+         throw rethrow(cause);
+      } catch (ReflectiveOperationException e) {
+         this._pool.release(pc);
+         throw new SQLException("COPY FROM STDIN is not supported by this JDBC driver: " + e);
+      } catch (SQLException | IOException | RuntimeException e) {
+         this._pool.release(pc, e instanceof SQLException ? (SQLException) e : null);
+         throw e;
+      }//end try
+   }//end copy
+
+   /*
+    * Returns the driver's CopyManager for a connection.
+    **/
+   private static Object copyApi(Connection conn) throws SQLException, IOException, ReflectiveOperationException {
+      try {
+         return conn.getClass().getMethod("getCopyAPI").invoke(conn);
+      } catch (InvocationTargetException e) {
+         throw rethrow(e.getCause());
+      }//end try
+   }//end copyApi
+
+   /*
+    * Drops the secondary indexes of the loaded tables and returns their
+    * definitions.  Indexes backing primary keys and other constraints stay.
+    * The drops run in one transaction, so when one fails the others are
+    * rolled back and no index is lost without its definition.
+    **/
+   private List<String> dropIndexes() throws SQLException {
+      List<String> definitions = new ArrayList<String>();
+      List<String> names = new ArrayList<String>();
+      ConnectionPool.PooledConnection pc = this._pool.borrow();
+      try {
+         ResultSet rs = pc.prepare(Queries.LOAD_SECONDARY_INDEXES.getSql()).executeQuery();
+         try {
+            while (rs.next()) {
+               names.add(rs.getString(1));
+               definitions.add(rs.getString(2));
+            }//end while
+         } finally {
+            rs.close();
+         }//end try
+         Connection conn = pc.getConnection();
+         conn.setAutoCommit(false);
+         boolean done = false;
+         try {
+            Statement stmt = conn.createStatement();
+            try {
+               for (String name : names)
+                  stmt.executeUpdate("DROP INDEX \"" + name + "\"");
+            } finally {
+               stmt.close();
+            }//end try
+            conn.commit();
+            done = true;
+         } finally {
+            if (!done)
+               conn.rollback();
+            conn.setAutoCommit(true);
+         }//end try
+      } catch (SQLException e) {
+         this._pool.release(pc, e);
+         throw e;
+      }//end try
+      this._pool.release(pc);
+      return definitions;
+   }//end dropIndexes
+
+   private void createIndexes(List<String> definitions) throws SQLException {
+      if (definitions.isEmpty())
+         return;
+      long start = System.nanoTime();
+      ConnectionPool.PooledConnection pc = this._pool.borrow();
+      try {
+         Statement stmt = pc.getConnection().createStatement();
+         try {
+            for (String definition : definitions)
+               stmt.executeUpdate(definition);
+         } finally {
+            stmt.close();
+         }//end try
+      } catch (SQLException e) {
+         this._pool.release(pc, e);
+         throw e;
+      }//end try
+      this._pool.release(pc);
+      System.out.printf("indexes: rebuilt %d in %.2f s%n", definitions.size(), (System.nanoTime() - start) / 1e9);
+   }//end createIndexes
+
+   /*
+    * Moves the order id sequence past the loaded orders, restarts the stale
+    * order sweep and refreshes the planner statistics of the freshly loaded
+    * tables.
+    **/
+   private void finish() throws SQLException {
+      ConnectionPool.PooledConnection pc = this._pool.borrow();
+      try {
+         pc.prepare(Queries.RESET_ORDER_ID_SEQUENCE.getSql()).executeQuery().close();
+         // the loaded orders may lie behind where earlier sweeps stopped
+         pc.prepare(Queries.RESET_SWEEP_MARKS.getSql()).executeUpdate();
+         Statement stmt = pc.getConnection().createStatement();
+         try {
+            for (String table : INDEPENDENT)
+               stmt.executeUpdate("ANALYZE " + table);
+            for (String table : DEPENDENT)
+               stmt.executeUpdate("ANALYZE " + table);
+         } finally {
+            stmt.close();
+         }//end try
+      } catch (SQLException e) {
+         this._pool.release(pc, e);
+         throw e;
+      }//end try
+      this._pool.release(pc);
+   }//end finish
+
+   private static void report(String what, long rows, long nanos) {
+      double seconds = nanos / 1e9;
+      System.out.printf("%s: %d rows in %.2f s (%.0f rows/s)%n", what, rows, seconds,
+                        seconds > 0 ? rows / seconds : 0.0);
+   }//end report
+
+   private static SQLException rethrow(Throwable t) throws IOException {
+      if (t instanceof SQLException)
+         return (SQLException) t;
+      if (t instanceof IOException)
+         throw (IOException) t;
+      if (t instanceof RuntimeException)
+         throw (RuntimeException) t;
+      if (t instanceof Error)
+         throw (Error) t;
+      SQLException e = new SQLException(String.valueOf(t));
+      e.initCause(t);
+      return e;
+   }//end rethrow
+
+   /**
+    * Loads a data directory into an existing, empty database.
+    *
+    * @param args dbname, port, user and the data directory
+    */
+   public static void main(String[] args) {
+      if (args.length != 4) {
+         System.err.println("Usage: java [-classpath <classpath>] " + BulkLoader.class.getName()
+                            + " <dbname> <port> <user> <data directory>");
+         return;
+      }//end if
+      ConnectionPool pool = null;
+      boolean loaded = false;
+      try {
+         Class.forName("org.postgresql.Driver");
+         String url = "jdbc:postgresql://localhost:" + args[1] + "/" + args[0];
+         pool = new ConnectionPool(url, args[2], "", 1, INDEPENDENT.length, 60000L, 60000L);
+         new BulkLoader(pool, new File(args[3])).load();
+         loaded = true;
+      } catch (Exception e) {
+         System.err.println("Load failed: " + e.getMessage());
+      } finally {
+         if (pool != null)
+            pool.close();
+      }//end try
+      if (!loaded)
+         System.exit(1);
+   }//end main
+
+}//end BulkLoader
@@ -0,0 +1,93 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Typed column decoders shared by the row mappers.  Money is carried as a
+ * long number of cents and timestamps as epoch milliseconds so decoded rows
+ * hold primitives rather than strings that have to be parsed again.
+ *
+ */
+public final class Columns {
+
+   private Columns() {
+   }
+
+   /**
+    * Reads a decimal(10,2) money column as cents.
+    *
+    * @param rs the result set positioned on a row
+    * @param col the 1-based column index
+    * @return the amount in cents, 0 when the column is null
+    * @throws java.sql.SQLException when the column cannot be read
+    */
+   public static long getCents(ResultSet rs, int col) throws SQLException {
+      BigDecimal value = rs.getBigDecimal(col);
+      return value == null ? 0L : value.movePointRight(2).longValue();
+   }//end getCents
+
+   /**
+    * Reads a timestamp column as milliseconds since the epoch.
+    *
+    * @param rs the result set positioned on a row
+    * @param col the 1-based column index
+    * @return the instant in epoch milliseconds, 0 when the column is null
+    * @throws java.sql.SQLException when the column cannot be read
+    */
+   public static long getEpochMillis(ResultSet rs, int col) throws SQLException {
+      Timestamp value = rs.getTimestamp(col);
+      return value == null ? 0L : value.getTime();
+   }//end getEpochMillis
+
+   /**
+    * Reads a char(n) column without its blank padding.
+    *
+    * @param rs the result set positioned on a row
+    * @param col the 1-based column index
+    * @return the trimmed value, or null when the column is null
+    * @throws java.sql.SQLException when the column cannot be read
+    */
+   public static String getTrimmed(ResultSet rs, int col) throws SQLException {
+      String value = rs.getString(col);
+      return value == null ? null : value.trim();
+   }//end getTrimmed
+
+   /**
+    * @param cents an amount in cents
+    * @return the amount as a decimal suitable for a decimal(10,2) parameter
+    */
+   public static BigDecimal toDecimal(long cents) {
+      return BigDecimal.valueOf(cents, 2);
+   }//end toDecimal
+
+   /**
+    * @param cents an amount in cents
+    * @return the amount formatted as dollars, e.g. "12.50"
+    */
+   public static String formatCents(long cents) {
+      StringBuilder sb = new StringBuilder(12);
+      if (cents < 0) {
+         sb.append('-');
+         cents = -cents;
+      }//end if
+      long fraction = cents % 100;
+      sb.append(cents / 100).append('.');
+      if (fraction < 10)
+         sb.append('0');
+      return sb.append(fraction).toString();
+   }//end formatCents
+
+}//end Columns
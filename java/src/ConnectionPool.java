@@ -0,0 +1,484 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.sql.DriverManager;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A small fixed-bounds JDBC connection pool used by PizzaStore.  Connections
+ * are kept between a minimum and a maximum size, validated when they are
+ * borrowed after sitting idle, evicted when idle for too long and replaced
+ * transparently when they turn out to be broken.
+ *
+ */
+public class ConnectionPool {
+
+   // connection settings
+   private final String _url;
+   private final String _user;
+   private final String _passwd;
+
+   // pool bounds and timeouts
+   private final int _minSize;
+   private final int _maxSize;
+   private final long _borrowTimeoutMillis;
+   private final long _maxIdleMillis;
+   private final long _validateAfterMillis;
+
+   // idle connections, most recently returned first
+   private final ArrayDeque<PooledConnection> _idle = new ArrayDeque<PooledConnection>();
+   private final ReentrantLock _lock = new ReentrantLock();
+   private final Condition _available = _lock.newCondition();
+   private int _open = 0;
+   private boolean _closed = false;
+
+   // server process ids of the open connections, so callers can tell this
+   // process's own notifications from those of other processes
+   private final Set<Integer> _backendPids = ConcurrentHashMap.newKeySet();
+
+   private final ScheduledExecutorService _evictor;
+
+   // metrics
+   private final AtomicLong _borrowCount = new AtomicLong();
+   private final AtomicLong _waitCount = new AtomicLong();
+   private final AtomicLong _waitNanos = new AtomicLong();
+   private final AtomicLong _maxWaitNanos = new AtomicLong();
+   private final AtomicLong _timeoutCount = new AtomicLong();
+   private final AtomicLong _createdCount = new AtomicLong();
+   private final AtomicLong _evictedCount = new AtomicLong();
+   private final AtomicLong _brokenCount = new AtomicLong();
+
+   // prepared statement caching, one cache per physical connection
+   private final int _statementCacheSize = Integer.getInteger("pizzastore.statementCacheSize", 64);
+   private final int _serverPrepareThreshold = Integer.getInteger("pizzastore.serverPrepareThreshold", 3);
+   private final StatementCache.Stats _statementStats = new StatementCache.Stats();
+
+   /**
+    * A physical connection owned by the pool.
+    */
+   public static class PooledConnection {
+      private final Connection _connection;
+      private final StatementCache _statements;
+      private final int _backendPid;
+      private long _lastUsed;
+
+      PooledConnection(Connection connection, StatementCache statements, int backendPid) {
+         this._connection = connection;
+         this._statements = statements;
+         this._backendPid = backendPid;
+         this._lastUsed = System.currentTimeMillis();
+      }
+
+      /**
+       * @return the underlying JDBC connection
+       */
+      public Connection getConnection() {
+         return this._connection;
+      }
+
+      /**
+       * Returns the cached prepared statement for the given SQL text.  The
+       * statement belongs to this connection and must not be closed.
+       *
+       * @param sql the parameterized SQL text
+       * @return a prepared statement ready for binding
+       * @throws java.sql.SQLException when the statement cannot be prepared
+       */
+      public PreparedStatement prepare(String sql) throws SQLException {
+         return this._statements.prepare(sql);
+      }
+   }//end PooledConnection
+
+   /**
+    * Creates a new pool and opens the minimum number of connections.
+    *
+    * @param url the JDBC connection URL
+    * @param user the user name used to login to the database
+    * @param passwd the user login password
+    * @param minSize number of connections kept open at all times
+    * @param maxSize upper bound on open connections
+    * @param borrowTimeoutMillis how long borrow() waits for a free connection
+    * @param maxIdleMillis idle time after which surplus connections are closed
+    * @throws java.sql.SQLException when the initial connections cannot be made
+    */
+   public ConnectionPool(String url, String user, String passwd, int minSize, int maxSize,
+                         long borrowTimeoutMillis, long maxIdleMillis) throws SQLException {
+      if (minSize < 0 || maxSize < 1 || minSize > maxSize)
+         throw new IllegalArgumentException("Invalid pool bounds: min=" + minSize + " max=" + maxSize);
+      this._url = url;
+      this._user = user;
+      this._passwd = passwd;
+      this._minSize = minSize;
+      this._maxSize = maxSize;
+      this._borrowTimeoutMillis = borrowTimeoutMillis;
+      this._maxIdleMillis = maxIdleMillis;
+      this._validateAfterMillis = Long.getLong("pizzastore.pool.validateAfterMillis", 1000L);
+
+      try {
+         for (int i = 0; i < minSize; ++i) {
+            this._idle.push(open());
+            ++this._open;
+         }//end for
+      } catch (SQLException | RuntimeException e) {
+         // the pool never becomes usable, so nobody else would close these
+         while (!this._idle.isEmpty())
+            closeQuietly(this._idle.pop());
+         this._open = 0;
+         throw e;
+      }//end try
+
+      this._evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+         Thread t = new Thread(r, "pool-evictor");
+         t.setDaemon(true);
+         return t;
+      });
+      long period = Math.max(1000L, maxIdleMillis / 2);
+      this._evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+   }//end ConnectionPool
+
+   /**
+    * Borrows a connection, waiting up to the borrow timeout when the pool is
+    * exhausted.  Connections that have been idle for a while are validated
+    * first and silently replaced if they are dead.
+    *
+    * @return a connection that must be handed back through release()
+    * @throws java.sql.SQLException when no connection becomes available
+    */
+   public PooledConnection borrow() throws SQLException {
+      long start = System.nanoTime();
+      long deadline = start + TimeUnit.MILLISECONDS.toNanos(this._borrowTimeoutMillis);
+      boolean waited = false;
+      PooledConnection pc = null;
+      boolean create = false;
+
+      this._lock.lock();
+      try {
+         while (pc == null && !create) {
+            if (this._closed)
+               throw new SQLException("Connection pool is closed");
+            if (!this._idle.isEmpty()) {
+               pc = this._idle.pop();
+            } else if (this._open < this._maxSize) {
+               ++this._open;
+               create = true;
+            } else {
+               long remaining = deadline - System.nanoTime();
+               if (remaining <= 0) {
+                  this._timeoutCount.incrementAndGet();
+                  throw new SQLException("Timed out after " + this._borrowTimeoutMillis
+                                         + " ms waiting for a database connection");
+               }//end if
+               waited = true;
+               try {
+                  this._available.awaitNanos(remaining);
+               } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                  throw new SQLException("Interrupted while waiting for a database connection");
+               }//end try
+            }//end if
+         }//end while
+      } finally {
+         this._lock.unlock();
+      }//end try
+
+      if (create) {
+         try {
+            pc = open();
+         } catch (SQLException e) {
+            discard();
+            throw e;
+         }//end try
+      } else if (System.currentTimeMillis() - pc._lastUsed > this._validateAfterMillis && !isAlive(pc)) {
+         this._brokenCount.incrementAndGet();
+         closeQuietly(pc);
+         discard();
+         return borrow();
+      }//end if
+
+      long elapsed = System.nanoTime() - start;
+      this._borrowCount.incrementAndGet();
+      if (waited) {
+         this._waitCount.incrementAndGet();
+         this._waitNanos.addAndGet(elapsed);
+      }//end if
+      long max;
+      while (elapsed > (max = this._maxWaitNanos.get()) && !this._maxWaitNanos.compareAndSet(max, elapsed)) {
+         // retry until the maximum is recorded
+      }//end while
+      return pc;
+   }//end borrow
+
+   /**
+    * Returns a connection to the pool.  Any open transaction is rolled back
+    * so the next borrower always starts in autocommit mode.
+    *
+    * @param pc the connection obtained from borrow()
+    */
+   public void release(PooledConnection pc) {
+      if (pc == null)
+         return;
+      try {
+         if (pc._connection.isClosed()) {
+            release(pc, null);
+            return;
+         }//end if
+         if (!pc._connection.getAutoCommit()) {
+            pc._connection.rollback();
+            pc._connection.setAutoCommit(true);
+         }//end if
+      } catch (SQLException e) {
+         // a connection that cannot even roll back is not worth keeping
+         this._brokenCount.incrementAndGet();
+         closeQuietly(pc);
+         discard();
+         return;
+      }//end try
+      pc._lastUsed = System.currentTimeMillis();
+      this._lock.lock();
+      try {
+         if (this._closed) {
+            closeQuietly(pc);
+            --this._open;
+         } else {
+            this._idle.push(pc);
+         }//end if
+         this._available.signal();
+      } finally {
+         this._lock.unlock();
+      }//end try
+   }//end release
+
+   /**
+    * Returns a connection after a failed operation.  If the failure indicates
+    * that the connection itself is unusable it is closed and its slot freed,
+    * so the next borrower gets a fresh physical connection.
+    *
+    * @param pc the connection obtained from borrow()
+    * @param failure the exception raised while using it, may be null
+    */
+   public void release(PooledConnection pc, SQLException failure) {
+      if (pc == null)
+         return;
+      if (isBroken(pc, failure)) {
+         this._brokenCount.incrementAndGet();
+         closeQuietly(pc);
+         discard();
+      } else {
+         release(pc);
+      }//end if
+   }//end release
+
+   /**
+    * Closes every idle connection and stops the evictor.  Connections that
+    * are still borrowed are closed when they are released.
+    */
+   public void close() {
+      this._evictor.shutdownNow();
+      this._lock.lock();
+      try {
+         this._closed = true;
+         while (!this._idle.isEmpty()) {
+            closeQuietly(this._idle.pop());
+            --this._open;
+         }//end while
+         this._available.signalAll();
+      } finally {
+         this._lock.unlock();
+      }//end try
+   }//end close
+
+   /**
+    * @return a one line summary of the pool metrics
+    */
+   public String getStats() {
+      long borrows = this._borrowCount.get();
+      long waits = this._waitCount.get();
+      int open, idle;
+      this._lock.lock();
+      try {
+         open = this._open;
+         idle = this._idle.size();
+      } finally {
+         this._lock.unlock();
+      }//end try
+      return String.format("open=%d idle=%d borrows=%d waits=%d avgWaitMs=%.3f maxWaitMs=%.3f "
+                           + "timeouts=%d created=%d evicted=%d broken=%d",
+                           open, idle, borrows, waits,
+                           waits == 0 ? 0.0 : this._waitNanos.get() / 1e6 / waits,
+                           this._maxWaitNanos.get() / 1e6,
+                           this._timeoutCount.get(), this._createdCount.get(),
+                           this._evictedCount.get(), this._brokenCount.get())
+             + " statements: " + this._statementStats;
+   }//end getStats
+
+   /**
+    * @return hit, miss and eviction counters of the statement caches
+    */
+   public StatementCache.Stats getStatementStats() {
+      return this._statementStats;
+   }//end getStatementStats
+
+   public long getBorrowCount() { return this._borrowCount.get(); }
+   public long getWaitCount() { return this._waitCount.get(); }
+   public long getTotalWaitNanos() { return this._waitNanos.get(); }
+   public long getMaxWaitNanos() { return this._maxWaitNanos.get(); }
+   public long getTimeoutCount() { return this._timeoutCount.get(); }
+
+   /*
+    * Closes connections that have been idle longer than the idle limit while
+    * keeping at least the minimum number open.
+    **/
+   private void evictIdle() {
+      List<PooledConnection> expired = new ArrayList<PooledConnection>();
+      long now = System.currentTimeMillis();
+      this._lock.lock();
+      try {
+         // the oldest connections sit at the tail of the deque
+         Iterator<PooledConnection> it = this._idle.descendingIterator();
+         while (it.hasNext() && this._open - expired.size() > this._minSize) {
+            PooledConnection pc = it.next();
+            if (now - pc._lastUsed < this._maxIdleMillis)
+               break;
+            it.remove();
+            expired.add(pc);
+         }//end while
+         this._open -= expired.size();
+      } finally {
+         this._lock.unlock();
+      }//end try
+      for (PooledConnection pc : expired) {
+         closeQuietly(pc);
+         this._evictedCount.incrementAndGet();
+      }//end for
+   }//end evictIdle
+
+   private PooledConnection open() throws SQLException {
+      Connection c = openUnpooled();
+      int backendPid;
+      try {
+         backendPid = backendPid(c);
+      } catch (SQLException e) {
+         c.close();
+         throw e;
+      }//end try
+      this._createdCount.incrementAndGet();
+      this._backendPids.add(backendPid);
+      return new PooledConnection(c, new StatementCache(c, this._statementCacheSize,
+                                                        this._serverPrepareThreshold, this._statementStats),
+                                  backendPid);
+   }//end open
+
+   /**
+    * Opens a connection with the pool's settings that the pool does not
+    * manage or count, for sessions held for the life of the process such as
+    * a LISTEN.  The caller closes it.
+    *
+    * @return a new connection
+    * @throws java.sql.SQLException when the connection cannot be made
+    */
+   public Connection openUnpooled() throws SQLException {
+      return DriverManager.getConnection(this._url, this._user, this._passwd);
+   }//end openUnpooled
+
+   /**
+    * @param pid a server process id, e.g. from PGNotification.getPID()
+    * @return true if one of this pool's open connections is served by that process
+    */
+   public boolean isOwnBackend(int pid) {
+      return this._backendPids.contains(pid);
+   }//end isOwnBackend
+
+   private static int backendPid(Connection c) throws SQLException {
+      Statement stmt = c.createStatement();
+      try {
+         ResultSet rs = stmt.executeQuery("SELECT pg_backend_pid()");
+         try {
+            rs.next();
+            return rs.getInt(1);
+         } finally {
+            rs.close();
+         }//end try
+      } finally {
+         stmt.close();
+      }//end try
+   }//end backendPid
+
+   /*
+    * Frees the slot of a connection that has been closed outside the idle list.
+    **/
+   private void discard() {
+      this._lock.lock();
+      try {
+         --this._open;
+         this._available.signal();
+      } finally {
+         this._lock.unlock();
+      }//end try
+   }//end discard
+
+   private boolean isAlive(PooledConnection pc) {
+      try {
+         Statement stmt = pc._connection.createStatement();
+         try {
+            stmt.executeQuery("SELECT 1").close();
+         } finally {
+            stmt.close();
+         }//end try
+         return true;
+      } catch (SQLException e) {
+         return false;
+      }//end try
+   }//end isAlive
+
+   private boolean isBroken(PooledConnection pc, SQLException failure) {
+      try {
+         if (pc._connection.isClosed())
+            return true;
+      } catch (SQLException e) {
+         return true;
+      }//end try
+      if (failure == null)
+         return false;
+      // SQLSTATE class 08 is "connection exception"
+      String state = failure.getSQLState();
+      if (state != null)
+         return state.startsWith("08");
+      return !isAlive(pc);
+   }//end isBroken
+
+   private void closeQuietly(PooledConnection pc) {
+      this._backendPids.remove(pc._backendPid);
+      pc._statements.closeAll();
+      try {
+         pc._connection.close();
+      } catch (SQLException e) {
+         // ignored.
+      }//end try
+   }//end closeQuietly
+
+}//end ConnectionPool
@@ -0,0 +1,511 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes a synthetic data set in the format of the files in data/, at any
+ * scale, for exercising order history, indexes and placeOrder at realistic
+ * volume.  The menu is taken from an existing items.csv; users, stores,
+ * orders and order lines are generated with skew:
+ *
+ *  - a few stores and customers receive most of the orders (Zipf),
+ *  - a few items appear on most order lines (Zipf),
+ *  - orders cluster around lunch and dinner.
+ *
+ * Rows are generated in fixed-size chunks, each from its own random stream
+ * derived from the seed and the chunk number, so the output depends only on
+ * the seed and the scale, never on the number of threads.  Chunks are
+ * generated in parallel and written in order as they complete, with only a
+ * few chunks in memory at a time.
+ *
+ */
+public class DataGenerator {
+
+   // rows generated per chunk and random stream
+   private static final int CHUNK_SIZE = 50000;
+
+   // first order id, as in the shipped data
+   private static final int FIRST_ORDER_ID = 10000;
+
+   // Zipf exponents: larger means more concentrated
+   private static final double STORE_SKEW = 1.0;
+   private static final double CUSTOMER_SKEW = 1.1;
+   private static final double ITEM_SKEW = 1.2;
+
+   // relative number of orders placed in each hour of the day
+   private static final double[] HOURLY = {
+      0.2, 0.1, 0.1, 0.1, 0.1, 0.2, 0.4, 0.8, 1.0, 1.2, 2.0, 4.5,
+      6.0, 4.0, 2.0, 1.8, 2.5, 5.0, 7.0, 6.5, 4.5, 3.0, 1.5, 0.6 };
+
+   private static final String[][] PLACES = {
+      { "Washington", "District of Columbia" }, { "New York City", "New York" }, { "Houston", "Texas" },
+      { "Atlanta", "Georgia" }, { "Sacramento", "California" }, { "San Diego", "California" },
+      { "Los Angeles", "California" }, { "Riverside", "California" }, { "Spring", "Texas" },
+      { "Dallas", "Texas" }, { "Austin", "Texas" }, { "Portland", "Oregon" }, { "Seattle", "Washington" },
+      { "Chicago", "Illinois" }, { "Phoenix", "Arizona" }, { "Denver", "Colorado" }, { "Miami", "Florida" },
+      { "Orlando", "Florida" }, { "Boston", "Massachusetts" }, { "Philadelphia", "Pennsylvania" },
+      { "Pittsburgh", "Pennsylvania" }, { "Columbus", "Ohio" }, { "Detroit", "Michigan" },
+      { "Minneapolis", "Minnesota" }, { "Kansas City", "Missouri" }, { "Nashville", "Tennessee" },
+      { "Charlotte", "North Carolina" }, { "Las Vegas", "Nevada" }, { "Salt Lake City", "Utah" },
+      { "Baltimore", "Maryland" } };
+
+   private static final String[] STREETS = {
+      "Hallows", "Bunker Hill", "Jenifer", "Oak", "Maple", "Cedar", "Pine", "Elm", "Sunset", "Lake",
+      "Hill", "Park", "Washington", "Lincoln", "Jackson", "Madison", "Ridge", "River", "Spring", "Valley" };
+
+   private static final String[] SUFFIXES = { "Avenue", "Street", "Road", "Terrace", "Center", "Court", "Lane", "Way" };
+
+   private static final String[] STATUSES = { "complete", "incomplete", "in progress" };
+
+   // cumulative probabilities of STATUSES
+   private static final double[] STATUS_CDF = { 0.90, 0.97, 1.0 };
+
+   /**
+    * Samples ranks 0..n-1 with probability proportional to 1 / (rank + 1)^s.
+    */
+   static final class Zipf {
+      private final double[] _cdf;
+
+      Zipf(int n, double s) {
+         this._cdf = new double[n];
+         double sum = 0;
+         for (int i = 0; i < n; ++i)
+            this._cdf[i] = sum += 1.0 / Math.pow(i + 1, s);
+         for (int i = 0; i < n; ++i)
+            this._cdf[i] /= sum;
+      }
+
+      int next(SplittableRandom random) {
+         int i = Arrays.binarySearch(this._cdf, random.nextDouble());
+         return Math.min(i < 0 ? -i - 1 : i, this._cdf.length - 1);
+      }
+   }//end Zipf
+
+   // one chunk of generated rows per output file
+   private interface ChunkWriter {
+      void write(int chunk, int from, int to, SplittableRandom random, StringBuilder out);
+   }//end ChunkWriter
+
+   private final File _outDir;
+   private final long _seed;
+   private final int _threads;
+   private final int _users;
+   private final int _stores;
+   private final int _orders;
+   private final LocalDate _firstDay;
+   private final int _days;
+
+   // the menu, in items.csv order
+   private final String[] _itemNames;
+   private final long[] _itemCents;
+
+   // rank to id: the most popular rank is not simply the lowest id
+   private final int[] _storeByRank;
+   private final int[] _customerByRank;
+
+   private final double[] _hourCdf;
+
+   // shared by every chunk; read only once built
+   private final Zipf _storeRanks;
+   private final Zipf _customerRanks;
+   private final Zipf _itemRanks;
+
+   /**
+    * @param outDir where the CSV files are written
+    * @param items an items.csv to take the menu from
+    * @param seed the random seed; equal seeds give equal files
+    * @param threads number of generating threads
+    * @param users number of users
+    * @param stores number of stores
+    * @param orders number of orders
+    * @param firstDay the day of the oldest orders
+    * @param days number of days the orders are spread over
+    * @throws java.io.IOException when items.csv cannot be read
+    */
+   public DataGenerator(File outDir, File items, long seed, int threads, int users, int stores, int orders,
+                        LocalDate firstDay, int days) throws IOException {
+      if (users < 1 || stores < 1 || orders < 0 || days < 1 || threads < 1)
+         throw new IllegalArgumentException("Scale must be positive");
+      this._outDir = outDir;
+      this._seed = seed;
+      this._threads = threads;
+      this._users = users;
+      this._stores = stores;
+      this._orders = orders;
+      this._firstDay = firstDay;
+      this._days = days;
+
+      List<String[]> menu = readItems(items);
+      this._itemNames = new String[menu.size()];
+      this._itemCents = new long[menu.size()];
+      for (int i = 0; i < menu.size(); ++i) {
+         this._itemNames[i] = menu.get(i)[0];
+         this._itemCents[i] = new BigDecimal(menu.get(i)[1]).movePointRight(2).longValue();
+      }//end for
+
+      SplittableRandom random = new SplittableRandom(seed);
+      this._storeByRank = permutation(stores, 1, random);
+      this._customerByRank = permutation(users, 0, random);
+
+      this._storeRanks = new Zipf(stores, STORE_SKEW);
+      this._customerRanks = new Zipf(users, CUSTOMER_SKEW);
+      this._itemRanks = new Zipf(this._itemNames.length, ITEM_SKEW);
+
+      this._hourCdf = new double[HOURLY.length];
+      double sum = 0;
+      for (int h = 0; h < HOURLY.length; ++h)
+         this._hourCdf[h] = sum += HOURLY[h];
+      for (int h = 0; h < HOURLY.length; ++h)
+         this._hourCdf[h] /= sum;
+   }//end DataGenerator
+
+   /**
+    * Writes users.csv, store.csv, foodorder.csv and itemsinorder.csv, and a
+    * copy of items.csv, so the directory can be loaded as it is.
+    *
+    * @param items the items.csv the menu was taken from
+    * @throws java.io.IOException when a file cannot be written
+    */
+   public void generate(File items) throws IOException {
+      this._outDir.mkdirs();
+      ExecutorService workers = Executors.newFixedThreadPool(this._threads);
+      try {
+         long start = System.nanoTime();
+         write(workers, "users.csv", "login,password,role,favoriteItems,phoneNum", this._users, 1,
+               this::writeUsers);
+         write(workers, "store.csv", "storeID,address,city,state,isOpen,reviewScore", this._stores, 2,
+               this::writeStores);
+         write(workers, "foodorder.csv", "orderID,login,storeID,totalPrice,orderTimestamp,orderStatus",
+               this._orders, 3, (chunk, from, to, random, out) -> writeOrders(from, to, random, out, null));
+         // the same random streams again, so the lines match the orders and their totals
+         write(workers, "itemsinorder.csv", "orderID,itemName,quantity,price", this._orders, 3,
+               (chunk, from, to, random, out) -> writeOrders(from, to, random, null, out));
+         File copy = new File(this._outDir, "items.csv");
+         if (!copy.getCanonicalFile().equals(items.getCanonicalFile()))
+            Files.copy(items.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+         System.out.printf("generated %d users, %d stores, %d orders in %.1f s%n",
+                           this._users, this._stores, this._orders, (System.nanoTime() - start) / 1e9);
+      } finally {
+         workers.shutdownNow();
+      }//end try
+   }//end generate
+
+   /*
+    * Generates rows [0, rows) of one file in chunks on the workers and
+    * writes the chunks in order, keeping at most two per thread in flight.
+    **/
+   private void write(ExecutorService workers, String name, String header, int rows, final int stream,
+                      final ChunkWriter writer) throws IOException {
+      long start = System.nanoTime();
+      int chunks = (rows + CHUNK_SIZE - 1) / CHUNK_SIZE;
+      OutputStream out = new FileOutputStream(new File(this._outDir, name));
+      try {
+         out.write((header + "\n").getBytes(StandardCharsets.UTF_8));
+         ArrayDeque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+         int next = 0;
+         while (next < chunks || !pending.isEmpty()) {
+            while (next < chunks && pending.size() < 2 * this._threads) {
+               final int chunk = next++;
+               pending.add(workers.submit((Callable<byte[]>) () -> {
+                  int from = chunk * CHUNK_SIZE;
+                  int to = Math.min(rows, from + CHUNK_SIZE);
+                  StringBuilder sb = new StringBuilder((to - from) * 64);
+                  writer.write(chunk, from, to, random(stream, chunk), sb);
+                  return sb.toString().getBytes(StandardCharsets.UTF_8);
+               }));
+            }//end while
+            out.write(pending.poll().get());
+         }//end while
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IOException("Interrupted while generating " + name);
+      } catch (ExecutionException e) {
+         throw new IOException("Failed to generate " + name, e.getCause());
+      } finally {
+         out.close();
+      }//end try
+      System.out.printf("%s: %d rows in %.1f s%n", name, rows, (System.nanoTime() - start) / 1e9);
+   }//end write
+
+   private SplittableRandom random(int stream, int chunk) {
+      // mix so neighbouring chunks do not get correlated seeds
+      return new SplittableRandom(this._seed * 0x9E3779B97F4A7C15L + stream * 0x632BE59BD9B4E019L + chunk);
+   }//end random
+
+   private void writeUsers(int chunk, int from, int to, SplittableRandom random, StringBuilder out) {
+      for (int i = from; i < to; ++i) {
+         double r = random.nextDouble();
+         String role = r < 0.01 ? "manager" : r < 0.05 ? "driver" : "customer";
+         out.append(login(i)).append(',');
+         for (int c = 0; c < 10; ++c)
+            out.append((char) ('a' + random.nextInt(26)));
+         out.append(',').append(role).append(',');
+         appendCsv(out, this._itemNames[this._itemRanks.next(random)]);
+         out.append(',').append(200 + random.nextInt(800)).append('-')
+            .append(100 + random.nextInt(900)).append('-')
+            .append(1000 + random.nextInt(9000)).append('\n');
+      }//end for
+   }//end writeUsers
+
+   private void writeStores(int chunk, int from, int to, SplittableRandom random, StringBuilder out) {
+      for (int i = from; i < to; ++i) {
+         String[] place = PLACES[random.nextInt(PLACES.length)];
+         out.append(i + 1).append(',')
+            .append(1 + random.nextInt(99999)).append(' ')
+            .append(STREETS[random.nextInt(STREETS.length)]).append(' ')
+            .append(SUFFIXES[random.nextInt(SUFFIXES.length)]).append(',');
+         appendCsv(out, place[0]);
+         out.append(',');
+         appendCsv(out, place[1]);
+         // most stores are open and reasonably reviewed
+         out.append(',').append(random.nextDouble() < 0.85 ? "yes" : "no")
+            .append(',').append(Math.max(1, Math.min(5, (int) Math.round(3.8 + random.nextGaussian() * 0.9))))
+            .append('\n');
+      }//end for
+   }//end writeStores
+
+   /*
+    * Generates orders [from, to).  The same random stream yields both the
+    * order rows and their lines; exactly one of the outputs is non-null, and
+    * both passes consume the stream identically.
+    **/
+   private void writeOrders(int from, int to, SplittableRandom random, StringBuilder orders, StringBuilder lines) {
+      long firstSecond = this._firstDay.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+      int[] picked = new int[this._itemNames.length];
+      int[] quantity = new int[this._itemNames.length];
+
+      for (int i = from; i < to; ++i) {
+         int orderID = FIRST_ORDER_ID + i;
+         int customer = this._customerByRank[this._customerRanks.next(random)];
+         int storeID = this._storeByRank[this._storeRanks.next(random)];
+
+         // days advance with the order id; the hour follows the daily curve
+         long day = (long) i * this._days / Math.max(1, this._orders);
+         int hour = Arrays.binarySearch(this._hourCdf, random.nextDouble());
+         hour = Math.min(hour < 0 ? -hour - 1 : hour, 23);
+         long second = firstSecond + day * 86400 + hour * 3600 + random.nextInt(3600);
+
+         // one to a few distinct items, popular ones most often
+         int count = Math.min(this._itemNames.length, 1 + (int) (-Math.log(1 - random.nextDouble()) * 1.5));
+         int n = 0;
+         long totalCents = 0;
+         for (int tries = 0; n < count && tries < 4 * count; ++tries) {
+            int item = this._itemRanks.next(random);
+            int q = random.nextDouble() < 0.8 ? 1 : 2 + random.nextInt(2);
+            boolean seen = false;
+            for (int k = 0; k < n && !seen; ++k)
+               seen = picked[k] == item;
+            if (seen)
+               continue;
+            picked[n] = item;
+            quantity[n++] = q;
+            totalCents += this._itemCents[item] * q;
+         }//end for
+         double r = random.nextDouble();
+         int status = 0;
+         while (r >= STATUS_CDF[status])
+            ++status;
+
+         if (orders != null) {
+            orders.append(orderID).append(',').append(login(customer)).append(',').append(storeID).append(',');
+            appendCents(orders, totalCents).append(',');
+            appendTimestamp(orders, second);
+            orders.append(',').append(STATUSES[status]).append('\n');
+         } else {
+            for (int k = 0; k < n; ++k) {
+               lines.append(orderID).append(',');
+               appendCsv(lines, this._itemNames[picked[k]]);
+               lines.append(',').append(quantity[k]).append(',');
+               appendCents(lines, this._itemCents[picked[k]]).append('\n');
+            }//end for
+         }//end if
+      }//end for
+   }//end writeOrders
+
+   private static String login(int user) {
+      return "user" + user;
+   }//end login
+
+   private static StringBuilder appendCents(StringBuilder out, long cents) {
+      out.append(cents / 100).append('.');
+      return pad(out, (int) (cents % 100));
+   }//end appendCents
+
+   private static void appendTimestamp(StringBuilder out, long epochSecond) {
+      LocalDateTime t = LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+      out.append(t.getYear()).append('-');
+      pad(out, t.getMonthValue()).append('-');
+      pad(out, t.getDayOfMonth()).append(' ');
+      pad(out, t.getHour()).append(':');
+      pad(out, t.getMinute()).append(':');
+      pad(out, t.getSecond());
+   }//end appendTimestamp
+
+   private static StringBuilder pad(StringBuilder out, int value) {
+      if (value < 10)
+         out.append('0');
+      return out.append(value);
+   }//end pad
+
+   private static void appendCsv(StringBuilder out, String value) {
+      if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+         out.append(value);
+         return;
+      }//end if
+      out.append('"').append(value.replace("\"", "\"\"")).append('"');
+   }//end appendCsv
+
+   /*
+    * A random permutation of offset..offset+n-1.
+    **/
+   private static int[] permutation(int n, int offset, SplittableRandom random) {
+      int[] ids = new int[n];
+      for (int i = 0; i < n; ++i)
+         ids[i] = offset + i;
+      for (int i = n - 1; i > 0; --i) {
+         int j = random.nextInt(i + 1);
+         int t = ids[i];
+         ids[i] = ids[j];
+         ids[j] = t;
+      }//end for
+      return ids;
+   }//end permutation
+
+   /*
+    * Reads the name and price of every item.  items.csv pads its fields
+    * with a blank after each comma and quotes the ones containing commas.
+    **/
+   private static List<String[]> readItems(File items) throws IOException {
+      List<String[]> menu = new ArrayList<String[]>();
+      BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(items), StandardCharsets.UTF_8));
+      try {
+         in.readLine();
+         for (String line = in.readLine(); line != null; line = in.readLine()) {
+            if (line.trim().isEmpty())
+               continue;
+            List<String> fields = splitCsv(line);
+            menu.add(new String[] { fields.get(0), fields.get(3) });
+         }//end for
+      } finally {
+         in.close();
+      }//end try
+      if (menu.isEmpty())
+         throw new IOException("No items in " + items);
+      return menu;
+   }//end readItems
+
+   private static List<String> splitCsv(String line) {
+      List<String> fields = new ArrayList<String>();
+      StringBuilder field = new StringBuilder();
+      boolean quoted = false;
+      for (int i = 0; i < line.length(); ++i) {
+         char c = line.charAt(i);
+         if (quoted) {
+            if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+               field.append('"');
+               ++i;
+            } else if (c == '"') {
+               quoted = false;
+            } else {
+               field.append(c);
+            }//end if
+         } else if (c == '"') {
+            quoted = true;
+         } else if (c == ',') {
+            fields.add(field.toString().trim());
+            field.setLength(0);
+         } else {
+            field.append(c);
+         }//end if
+      }//end for
+      fields.add(field.toString().trim());
+      return fields;
+   }//end splitCsv
+
+   /**
+    * Generates a data set.
+    *
+    * @param args the output directory followed by options of the form
+    *        --items=FILE --seed=N --threads=N --users=N --stores=N
+    *        --orders=N --first-day=YYYY-MM-DD --days=N
+    */
+   public static void main(String[] args) {
+      if (args.length < 1) {
+         System.err.println("Usage: java [-classpath <classpath>] " + DataGenerator.class.getName()
+                            + " <output directory> [--items=FILE] [--seed=N] [--threads=N] [--users=N]"
+                            + " [--stores=N] [--orders=N] [--first-day=YYYY-MM-DD] [--days=N]");
+         return;
+      }//end if
+      File items = new File("data/items.csv");
+      long seed = 166;
+      int threads = Runtime.getRuntime().availableProcessors();
+      int users = 100000;
+      int stores = 1000;
+      int orders = 1000000;
+      LocalDate firstDay = LocalDate.of(2022, 1, 1);
+      int days = 3 * 365;
+      try {
+         for (int i = 1; i < args.length; ++i) {
+            String option = args[i];
+            String value = option.substring(option.indexOf('=') + 1);
+            if (option.startsWith("--items="))
+               items = new File(value);
+            else if (option.startsWith("--seed="))
+               seed = Long.parseLong(value);
+            else if (option.startsWith("--threads="))
+               threads = Integer.parseInt(value);
+            else if (option.startsWith("--users="))
+               users = Integer.parseInt(value);
+            else if (option.startsWith("--stores="))
+               stores = Integer.parseInt(value);
+            else if (option.startsWith("--orders="))
+               orders = Integer.parseInt(value);
+            else if (option.startsWith("--first-day="))
+               firstDay = LocalDate.parse(value);
+            else if (option.startsWith("--days="))
+               days = Integer.parseInt(value);
+            else
+               throw new IllegalArgumentException("Unknown option: " + option);
+         }//end for
+         new DataGenerator(new File(args[0]), items, seed, threads, users, stores, orders, firstDay, days)
+            .generate(items);
+      } catch (Exception e) {
+         System.err.println("Generation failed: " + e.getMessage());
+         System.exit(1);
+      }//end try
+   }//end main
+
+}//end DataGenerator
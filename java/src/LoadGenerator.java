@@ -0,0 +1,470 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A closed-loop load test of one PizzaStore instance.  N virtual users run
+ * concurrently, each as a customer, driver or manager in the configured
+ * mix, and repeatedly perform one of their role's operations followed by a
+ * think time:
+ *
+ *  - customers browse the menu, place orders and view their recent orders,
+ *  - drivers update order statuses,
+ *  - managers update menu items and customers' phone numbers.
+ *
+ * Every virtual user acts as a user of its role read from Users, and the
+ * operations go through PizzaService with that user's session, so they are
+ * authorized, validated and cached as the console's and the server's are.  With a target rate, every user
+ * paces its cycles so the users together start that many operations per
+ * second; without one they only wait out their think time.  Throughput and
+ * p50/p99/p99.9 latency per operation are written to a results file,
+ * with the first error each operation failed with.
+ *
+ * With a target rate, latency is measured from when an operation was due to
+ * start, not from when it started: an operation held up by a slow one before
+ * it counts its wait, so a stall shows in the percentiles as the delay every
+ * operation scheduled during it saw, instead of being left out.
+ *
+ */
+public class LoadGenerator {
+
+   private enum Op { BROWSE_MENU, PLACE_ORDER, VIEW_RECENT_ORDERS, UPDATE_ORDER_STATUS, UPDATE_MENU, UPDATE_USER }
+
+   // the statuses drivers move orders to, in delivery order
+   private static final OrderStatus[] DRIVER_STEPS = { OrderStatus.IN_PROGRESS, OrderStatus.OUT_FOR_DELIVERY,
+                                                       OrderStatus.COMPLETE };
+
+   // the roles of the mix, in order
+   private static final String[] ROLES = { "customer", "driver", "manager" };
+
+   // operation weights of each role
+   private static final int[] CUSTOMER_MIX = { 50, 30, 20, 0, 0, 0 };
+   private static final int[] DRIVER_MIX = { 0, 0, 0, 100, 0, 0 };
+   private static final int[] MANAGER_MIX = { 0, 0, 0, 0, 50, 50 };
+
+   // most users read from Users to act as
+   private static final int MAX_USERS = 100000;
+
+   /**
+    * Latency histogram with about 1.5% precision.  Values below 128 are
+    * counted exactly; above that each power of two is split into 64
+    * buckets.  Not thread safe: every virtual user records into its own and
+    * they are merged at the end.
+    */
+   static final class Histogram {
+      private final long[] _counts = new long[58 * 64 + 128];
+      private long _total;
+      private long _max;
+
+      void record(long value) {
+         ++this._counts[index(value)];
+         ++this._total;
+         this._max = Math.max(this._max, value);
+      }
+
+      void add(Histogram other) {
+         for (int i = 0; i < this._counts.length; ++i)
+            this._counts[i] += other._counts[i];
+         this._total += other._total;
+         this._max = Math.max(this._max, other._max);
+      }
+
+      long count() {
+         return this._total;
+      }
+
+      long max() {
+         return this._max;
+      }
+
+      /**
+       * @param q the quantile, e.g. 0.99
+       * @return the lower bound of the bucket holding that quantile
+       */
+      long quantile(double q) {
+         long rank = (long) Math.ceil(q * this._total);
+         long seen = 0;
+         for (int i = 0; i < this._counts.length; ++i) {
+            seen += this._counts[i];
+            if (seen >= rank && seen > 0)
+               return Math.min(value(i), this._max);
+         }//end for
+         return this._max;
+      }
+
+      private static int index(long value) {
+         if (value < 128)
+            return (int) Math.max(0, value);
+         int shift = 63 - Long.numberOfLeadingZeros(value) - 6;
+         return shift * 64 + (int) (value >>> shift);
+      }
+
+      private static long value(int index) {
+         if (index < 128)
+            return index;
+         int shift = index / 64 - 1;
+         return (long) (index - shift * 64) << shift;
+      }
+   }//end Histogram
+
+   // what one virtual user measured
+   private static final class Results {
+      final Histogram[] latency = new Histogram[Op.values().length];
+      final long[] errors = new long[Op.values().length];
+      // the first failure of each operation, so a run full of errors says why
+      final String[] firstError = new String[Op.values().length];
+
+      Results() {
+         for (int i = 0; i < this.latency.length; ++i)
+            this.latency[i] = new Histogram();
+      }
+   }//end Results
+
+   private final PizzaStore _esql;
+   private final int _users;
+   private final int[] _roleMix;
+   private final long _thinkMillis;
+   private final double _targetRate;
+   private final long _warmupMillis;
+   private final long _durationMillis;
+   private final long _seed;
+
+   // logins of each role, in ROLES order
+   private final List<List<String>> _logins = new ArrayList<List<String>>();
+   private final List<String> _menuItems = new ArrayList<String>();
+   private List<Store> _stores;
+   private int _minOrderID;
+   private int _maxOrderID;
+
+   // ids of orders placed during the run, for the drivers to move along
+   private final AtomicIntegerArray _placed = new AtomicIntegerArray(1024);
+   private final AtomicInteger _placedCount = new AtomicInteger();
+
+   /**
+    * @param esql the store under test
+    * @param users number of concurrent virtual users
+    * @param roleMix relative number of customers, drivers and managers
+    * @param thinkMillis mean think time between operations
+    * @param targetRate operations per second all users together aim for, 0 for no pacing
+    * @param warmupMillis time before measuring starts
+    * @param durationMillis time measured
+    * @param seed random seed of the users' choices
+    */
+   public LoadGenerator(PizzaStore esql, int users, int[] roleMix, long thinkMillis, double targetRate,
+                        long warmupMillis, long durationMillis, long seed) {
+      this._esql = esql;
+      this._users = users;
+      this._roleMix = roleMix;
+      this._thinkMillis = thinkMillis;
+      this._targetRate = targetRate;
+      this._warmupMillis = warmupMillis;
+      this._durationMillis = durationMillis;
+      this._seed = seed;
+   }//end LoadGenerator
+
+   /**
+    * Runs the load and writes the results.
+    *
+    * @param resultsFile where the per-operation results are written
+    * @throws java.sql.SQLException when the users, menu or stores cannot be read
+    * @throws java.io.IOException when the results cannot be written
+    * @throws java.lang.InterruptedException when interrupted while waiting for the users
+    */
+   public void run(String resultsFile) throws SQLException, IOException, InterruptedException {
+      for (int r = 0; r < ROLES.length; ++r)
+         this._logins.add(new ArrayList<String>());
+      for (String[] user : this._esql.queryForList(Queries.LOAD_USERS,
+                                                   rs -> new String[] { rs.getString(1), rs.getString(2).trim() },
+                                                   MAX_USERS))
+         for (int r = 0; r < ROLES.length; ++r)
+            if (user[1].equalsIgnoreCase(ROLES[r]))
+               this._logins.get(r).add(user[0]);
+      for (MenuItem item : this._esql.getMenuCache().get().getItems())
+         this._menuItems.add(item.getItemName());
+      this._stores = this._esql.getStores().get().find(null, null, false);
+      long[] range = this._esql.queryForObject(Queries.LOAD_ORDER_ID_RANGE,
+                                               rs -> new long[] { rs.getLong(1), rs.getLong(2) });
+      this._minOrderID = (int) range[0];
+      this._maxOrderID = (int) range[1];
+      if (this._logins.get(0).isEmpty() || this._menuItems.isEmpty() || this._stores.isEmpty())
+         throw new SQLException("The database needs customers, menu items and stores to run against");
+      for (int r = 1; r < ROLES.length; ++r)
+         if (this._roleMix[r] > 0 && this._logins.get(r).isEmpty())
+            throw new SQLException("The mix has " + ROLES[r] + "s but the database has no " + ROLES[r] + " users");
+
+      final long start = System.currentTimeMillis();
+      final long measureFrom = start + this._warmupMillis;
+      final long end = measureFrom + this._durationMillis;
+      final Results[] results = new Results[this._users];
+      final CountDownLatch done = new CountDownLatch(this._users);
+      int roleTotal = this._roleMix[0] + this._roleMix[1] + this._roleMix[2];
+      for (int u = 0; u < this._users; ++u) {
+         // roles are dealt out deterministically in proportion to the mix
+         int slot = (int) ((long) u * roleTotal / this._users);
+         final int role = slot < this._roleMix[0] ? 0 : slot < this._roleMix[0] + this._roleMix[1] ? 1 : 2;
+         final int user = u;
+         results[u] = new Results();
+         Thread t = new Thread(() -> {
+            try {
+               virtualUser(user, role, measureFrom, end, results[user]);
+            } finally {
+               done.countDown();
+            }//end try
+         }, "vu-" + u);
+         t.setDaemon(true);
+         t.start();
+      }//end for
+      done.await();
+
+      Results total = new Results();
+      for (Results r : results) {
+         for (int i = 0; i < total.latency.length; ++i) {
+            total.latency[i].add(r.latency[i]);
+            total.errors[i] += r.errors[i];
+            if (total.firstError[i] == null)
+               total.firstError[i] = r.firstError[i];
+         }//end for
+      }//end for
+      report(total, resultsFile);
+   }//end run
+
+   private void virtualUser(int user, int role, long measureFrom, long end, Results results) {
+      SplittableRandom random = new SplittableRandom(this._seed * 31 + user);
+      List<String> logins = this._logins.get(role);
+      Session session = new Session(logins.get(random.nextInt(logins.size())), ROLES[role], null, null);
+      int[] mix = role == 0 ? CUSTOMER_MIX : role == 1 ? DRIVER_MIX : MANAGER_MIX;
+      // with a target rate each user starts an operation every cycle
+      long cycleNanos = this._targetRate > 0 ? (long) (this._users * 1e9 / this._targetRate) : 0;
+      long nextStart = System.nanoTime() + (cycleNanos > 0 ? random.nextLong(cycleNanos) : 0);
+      while (System.currentTimeMillis() < end) {
+         long t0;
+         if (cycleNanos > 0) {
+            sleepNanos(nextStart - System.nanoTime());
+            // from the intended start, so falling behind schedule is counted
+            t0 = nextStart;
+            nextStart += cycleNanos;
+         } else {
+            t0 = System.nanoTime();
+         }//end if
+         Op op = pick(mix, random);
+         Exception failure = null;
+         try {
+            perform(op, session, random);
+         } catch (SQLException | RuntimeException e) {
+            failure = e;
+         }//end try
+         long micros = (System.nanoTime() - t0) / 1000;
+         if (System.currentTimeMillis() >= measureFrom) {
+            if (failure != null) {
+               if (++results.errors[op.ordinal()] == 1)
+                  results.firstError[op.ordinal()] = failure.getClass().getSimpleName() + ": " + failure.getMessage();
+            } else
+               results.latency[op.ordinal()].record(micros);
+         }//end if
+         if (cycleNanos == 0 && this._thinkMillis > 0)
+            // exponential think times, as independent users would produce
+            sleepNanos((long) (-Math.log(1 - random.nextDouble()) * this._thinkMillis * 1e6));
+      }//end while
+   }//end virtualUser
+
+   private void perform(Op op, Session session, SplittableRandom random) throws SQLException {
+      PizzaService service = this._esql.getService();
+      switch (op) {
+         case BROWSE_MENU: {
+            MenuCache.Menu menu = service.getMenu();
+            if (random.nextBoolean())
+               menu.byType(menu.getItems().get(random.nextInt(menu.getItems().size())).getTypeOfItem());
+            else
+               menu.search(this._menuItems.get(random.nextInt(this._menuItems.size())), PizzaStore.SEARCH_LIMIT);
+            break;
+         }
+         case PLACE_ORDER: {
+            Map<String, Integer> items = new LinkedHashMap<String, Integer>();
+            for (int i = 1 + random.nextInt(3); i > 0; --i)
+               items.merge(this._menuItems.get(random.nextInt(this._menuItems.size())), 1 + random.nextInt(2), Integer::sum);
+            // through the service, so orders are group committed as they are in the server
+            Order order = service.placeOrder(session, this._stores.get(random.nextInt(this._stores.size())).getStoreID(),
+                                             items);
+            if (order.getOrderID() != 0)
+               this._placed.set(this._placedCount.getAndIncrement() & (this._placed.length() - 1),
+                                order.getOrderID());
+            break;
+         }
+         case VIEW_RECENT_ORDERS:
+            service.recentOrders(session);
+            break;
+         case UPDATE_ORDER_STATUS: {
+            int placed = Math.min(this._placedCount.get(), this._placed.length());
+            int orderID = placed > 0 ? this._placed.get(random.nextInt(placed))
+                        : this._minOrderID + random.nextInt(Math.max(1, this._maxOrderID - this._minOrderID + 1));
+            // a random next step; orders not in the step's source status are left alone, as with racing drivers
+            service.updateOrderStatus(session, Collections.<Integer, Integer>singletonMap(orderID, null),
+                                      DRIVER_STEPS[random.nextInt(DRIVER_STEPS.length)].getLabel());
+            break;
+         }
+         case UPDATE_MENU: {
+            // writes an item back unchanged: the full update and notify path, without drifting the menu
+            MenuCache.Menu menu = service.getMenu();
+            MenuItem item = menu.getItems().get(random.nextInt(menu.getItems().size()));
+            service.updateMenuItem(session, item.getItemName(), item);
+            break;
+         }
+         case UPDATE_USER: {
+            // a new phone number, which changes the row without changing anyone's role
+            List<String> customers = this._logins.get(0);
+            String phoneNum = String.format("%03d-%03d-%04d", 200 + random.nextInt(800), random.nextInt(1000),
+                                            random.nextInt(10000));
+            service.updateUser(session, customers.get(random.nextInt(customers.size())),
+                               PizzaService.UserField.PHONE_NUM, phoneNum);
+            break;
+         }
+      }//end switch
+   }//end perform
+
+   private static Op pick(int[] mix, SplittableRandom random) {
+      int total = 0;
+      for (int w : mix)
+         total += w;
+      int r = random.nextInt(total);
+      for (int i = 0; i < mix.length; ++i) {
+         if (r < mix[i])
+            return Op.values()[i];
+         r -= mix[i];
+      }//end for
+      throw new IllegalStateException("Empty operation mix");
+   }//end pick
+
+   private static void sleepNanos(long nanos) {
+      if (nanos <= 0)
+         return;
+      try {
+         TimeUnit.NANOSECONDS.sleep(nanos);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }//end try
+   }//end sleepNanos
+
+   private void report(Results total, String resultsFile) throws IOException {
+      double seconds = this._durationMillis / 1000.0;
+      PrintWriter out = new PrintWriter(new FileWriter(resultsFile));
+      try {
+         String header = String.format("# users=%d mix=%d/%d/%d thinkMillis=%d targetRate=%.1f durationSeconds=%.0f",
+                                       this._users, this._roleMix[0], this._roleMix[1], this._roleMix[2],
+                                       this._thinkMillis, this._targetRate, seconds);
+         String columns = "operation\tcount\terrors\tops_per_sec\tp50_us\tp99_us\tp999_us\tmax_us\tfirst_error";
+         out.println(header);
+         out.println(columns);
+         System.out.println(header);
+         System.out.println(columns);
+         long all = 0;
+         for (Op op : Op.values()) {
+            Histogram h = total.latency[op.ordinal()];
+            long errors = total.errors[op.ordinal()];
+            if (h.count() == 0 && errors == 0)
+               continue;
+            all += h.count();
+            String error = total.firstError[op.ordinal()];
+            String line = String.format("%s\t%d\t%d\t%.1f\t%d\t%d\t%d\t%d\t%s", op.name().toLowerCase(), h.count(),
+                                        errors, h.count() / seconds, h.quantile(0.5), h.quantile(0.99),
+                                        h.quantile(0.999), h.max(), error == null ? "" : error.replaceAll("\\s+", " "));
+            out.println(line);
+            System.out.println(line);
+         }//end for
+         String line = String.format("total\t%d\t\t%.1f", all, all / seconds);
+         out.println(line);
+         System.out.println(line);
+      } finally {
+         out.close();
+      }//end try
+      System.out.println("pool: " + this._esql.getPool().getStats());
+   }//end report
+
+   /**
+    * Runs a load test.
+    *
+    * @param args dbname, port and user followed by options of the form
+    *        --users=N --mix=CUSTOMERS/DRIVERS/MANAGERS --think-ms=N
+    *        --target-rate=OPS --warmup=SECONDS --duration=SECONDS --seed=N
+    *        --out=FILE
+    */
+   public static void main(String[] args) {
+      if (args.length < 3) {
+         System.err.println("Usage: java [-classpath <classpath>] " + LoadGenerator.class.getName()
+                            + " <dbname> <port> <user> [--users=N] [--mix=80/15/5] [--think-ms=N]"
+                            + " [--target-rate=OPS] [--warmup=SECONDS] [--duration=SECONDS] [--seed=N]"
+                            + " [--out=FILE]");
+         return;
+      }//end if
+      int users = 16;
+      int[] mix = { 80, 15, 5 };
+      long thinkMillis = 100;
+      double targetRate = 0;
+      long warmup = 10;
+      long duration = 60;
+      long seed = 166;
+      String out = "load-results.tsv";
+      PizzaStore esql = null;
+      boolean ok = false;
+      try {
+         for (int i = 3; i < args.length; ++i) {
+            String option = args[i];
+            String value = option.substring(option.indexOf('=') + 1);
+            if (option.startsWith("--users="))
+               users = Integer.parseInt(value);
+            else if (option.startsWith("--mix=")) {
+               String[] parts = value.split("/");
+               for (int r = 0; r < 3; ++r)
+                  mix[r] = Integer.parseInt(parts[r]);
+            } else if (option.startsWith("--think-ms="))
+               thinkMillis = Long.parseLong(value);
+            else if (option.startsWith("--target-rate="))
+               targetRate = Double.parseDouble(value);
+            else if (option.startsWith("--warmup="))
+               warmup = Long.parseLong(value);
+            else if (option.startsWith("--duration="))
+               duration = Long.parseLong(value);
+            else if (option.startsWith("--seed="))
+               seed = Long.parseLong(value);
+            else if (option.startsWith("--out="))
+               out = value;
+            else
+               throw new IllegalArgumentException("Unknown option: " + option);
+         }//end for
+         Class.forName("org.postgresql.Driver");
+         esql = new PizzaStore(args[0], args[1], args[2], "");
+         new LoadGenerator(esql, users, mix, thinkMillis, targetRate, warmup * 1000, duration * 1000, seed).run(out);
+         ok = true;
+      } catch (Exception e) {
+         System.err.println("Load test failed: " + e.getMessage());
+      } finally {
+         if (esql != null)
+            esql.cleanup();
+      }//end try
+      if (!ok)
+         System.exit(1);
+   }//end main
+
+}//end LoadGenerator
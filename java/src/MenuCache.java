@@ -0,0 +1,392 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-local copy of the Items table.  The menu is loaded once at
+ * startup and served from memory; readers always see an immutable snapshot
+ * so they never lock.
+ *
+ * Changes made through this process are applied precisely with
+ * itemChanged().  Changes made by other processes arrive on the
+ * menu_changed LISTEN/NOTIFY channel, which a background thread polls and
+ * answers with a full reload; the table is tiny, so that is cheaper than
+ * tracking individual items across processes.  Notifications sent from this
+ * process's own pooled connections are skipped, since itemChanged() has
+ * already applied them.
+ *
+ * The listening session lives for the life of the cache, so it is opened
+ * with ConnectionPool.openUnpooled() and does not count against the pool's
+ * maximum: the process holds one connection more than the pool bounds.
+ *
+ */
+public class MenuCache {
+
+   // Postgres notification channel announcing menu changes
+   public static final String CHANNEL = "menu_changed";
+
+   // the weighted text search document; must match the itemsSearch index.  The
+   // 'simple' config only lower cases, as MenuSearch.tokenize() does, with no
+   // stemming or stop words, so both search paths see the same words
+   public static final String SEARCH_DOCUMENT =
+      "(setweight(to_tsvector('simple', itemName), 'A') || "
+      + "setweight(to_tsvector('simple', typeOfItem || ' ' || ingredients), 'B') || "
+      + "setweight(to_tsvector('simple', COALESCE(description, '')), 'C'))";
+
+   /**
+    * An immutable snapshot of the menu, indexed for the viewMenu filters.
+    * The indexes are built once per snapshot, so every filter is answered
+    * from memory: type lookups by hash, price ranges by binary search over
+    * the items sorted by price.
+    */
+   public static final class Menu {
+      private static final List<MenuItem> NONE = Collections.emptyList();
+
+      private final List<MenuItem> _items;
+      private final Map<String, MenuItem> _byName;
+      private final Map<String, List<MenuItem>> _byType;
+
+      // the items in ascending price order, with their prices alongside
+      private final MenuItem[] _byPrice;
+      private final long[] _prices;
+
+      private final MenuSearch _search;
+
+      Menu(List<MenuItem> items) {
+         this._items = Collections.unmodifiableList(items);
+         HashMap<String, MenuItem> byName = new HashMap<String, MenuItem>(items.size() * 2);
+         HashMap<String, List<MenuItem>> byType = new HashMap<String, List<MenuItem>>();
+         for (MenuItem item : items) {
+            byName.put(item.getItemName(), item);
+            List<MenuItem> ofType = byType.get(normalizeType(item.getTypeOfItem()));
+            if (ofType == null)
+               byType.put(normalizeType(item.getTypeOfItem()), ofType = new ArrayList<MenuItem>());
+            ofType.add(item);
+         }//end for
+         for (Map.Entry<String, List<MenuItem>> e : byType.entrySet())
+            e.setValue(Collections.unmodifiableList(e.getValue()));
+         this._byName = byName;
+         this._byType = byType;
+
+         this._byPrice = items.toArray(new MenuItem[items.size()]);
+         // stable, so equally priced items keep their table order
+         Arrays.sort(this._byPrice, (a, b) -> Long.compare(a.getPriceCents(), b.getPriceCents()));
+         this._prices = new long[this._byPrice.length];
+         for (int i = 0; i < this._prices.length; ++i)
+            this._prices[i] = this._byPrice[i].getPriceCents();
+         this._search = new MenuSearch(items);
+      }
+
+      /**
+       * @return every item, in table order
+       */
+      public List<MenuItem> getItems() {
+         return this._items;
+      }
+
+      /**
+       * @param itemName the exact item name
+       * @return the item, or null when it is not on the menu
+       */
+      public MenuItem get(String itemName) {
+         return this._byName.get(itemName);
+      }
+
+      /**
+       * @param type the item type, compared ignoring case and surrounding blanks
+       * @return the items of that type, in table order
+       */
+      public List<MenuItem> byType(String type) {
+         List<MenuItem> items = this._byType.get(normalizeType(type));
+         return items == null ? NONE : items;
+      }
+
+      /**
+       * @param maxCents the highest price included, in cents
+       * @return the items priced at most maxCents, cheapest first
+       */
+      public List<MenuItem> atMost(long maxCents) {
+         return Arrays.asList(this._byPrice).subList(0, upperBound(maxCents));
+      }
+
+      /**
+       * @param ascending true for cheapest first
+       * @return every item ordered by price
+       */
+      public List<MenuItem> byPrice(boolean ascending) {
+         List<MenuItem> sorted = Arrays.asList(this._byPrice);
+         if (ascending)
+            return Collections.unmodifiableList(sorted);
+         List<MenuItem> reversed = new ArrayList<MenuItem>(sorted);
+         Collections.reverse(reversed);
+         return reversed;
+      }
+
+      /**
+       * @param query free text matched against names, types, ingredients and descriptions
+       * @param limit the most items returned
+       * @return the matching items, best match first
+       */
+      public List<MenuItem> search(String query, int limit) {
+         return this._search.search(query, limit);
+      }
+
+      // index of the first item priced above maxCents
+      private int upperBound(long maxCents) {
+         int lo = 0;
+         int hi = this._prices.length;
+         while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (this._prices[mid] <= maxCents)
+               lo = mid + 1;
+            else
+               hi = mid;
+         }//end while
+         return lo;
+      }
+   }//end Menu
+
+   /**
+    * Normalizes an item type the way the itemsType expression index does.
+    *
+    * @param type a type as stored or as typed by a user
+    * @return the type trimmed and lower cased
+    */
+   public static String normalizeType(String type) {
+      return type.trim().toLowerCase(Locale.ROOT);
+   }//end normalizeType
+
+   private final PizzaStore _esql;
+   private final long _pollMillis;
+   private volatile Menu _menu;
+   private ScheduledExecutorService _listener;
+   private Connection _listenConnection;
+
+   /**
+    * Creates the cache and loads the menu.
+    *
+    * @param esql the store the menu is read through
+    * @param pollMillis how often the change channel is polled
+    * @throws java.sql.SQLException when the menu cannot be loaded
+    */
+   public MenuCache(PizzaStore esql, long pollMillis) throws SQLException {
+      this._esql = esql;
+      this._pollMillis = pollMillis;
+      reload();
+   }//end MenuCache
+
+   /**
+    * @return the current menu snapshot
+    */
+   public Menu get() {
+      return this._menu;
+   }//end get
+
+   /**
+    * Reloads the whole menu from the database.
+    *
+    * @throws java.sql.SQLException when the menu cannot be read
+    */
+   public synchronized void reload() throws SQLException {
+      // streamed, so only the snapshot itself is held, not the driver's copy of the rows
+      final List<MenuItem> items = new ArrayList<MenuItem>();
+      this._esql.forEachRow(Queries.MENU_ITEMS, rs -> items.add(MenuItem.MAPPER.map(rs)));
+      this._menu = new Menu(items);
+   }//end reload
+
+   /**
+    * Updates an item, notifies other processes and refreshes this cache.
+    *
+    * @param oldName the current name of the item
+    * @param item the new values, possibly including a new name
+    * @return false when no item with the old name exists
+    * @throws java.sql.SQLException when the update failed
+    */
+   public boolean updateItem(final String oldName, final MenuItem item) throws SQLException {
+      int updated = this._esql.withTransaction(pc -> {
+         int n = this._esql.executeUpdate(pc, Queries.UPDATE_ITEM, item.getItemName(), item.getIngredients(),
+                                          item.getTypeOfItem(), Columns.toDecimal(item.getPriceCents()),
+                                          item.getDescription(), oldName);
+         if (n > 0)
+            this._esql.executeUpdate(pc, Queries.NOTIFY_MENU_CHANGED, item.getItemName());
+         return n;
+      });
+      if (updated == 0)
+         return false;
+      itemChanged(oldName, item.getItemName());
+      return true;
+   }//end updateItem
+
+   /**
+    * Adds an item, notifies other processes and refreshes this cache.
+    *
+    * @param item the new item
+    * @throws java.sql.SQLException when the insert failed
+    */
+   public void addItem(final MenuItem item) throws SQLException {
+      this._esql.withTransaction(pc -> {
+         this._esql.executeUpdate(pc, Queries.INSERT_ITEM, item.getItemName(), item.getIngredients(),
+                                  item.getTypeOfItem(), Columns.toDecimal(item.getPriceCents()),
+                                  item.getDescription());
+         return this._esql.executeUpdate(pc, Queries.NOTIFY_MENU_CHANGED, item.getItemName());
+      });
+      itemChanged(null, item.getItemName());
+   }//end addItem
+
+   /**
+    * Re-reads one changed item and swaps it into a new snapshot.  Renamed
+    * items keep their position; new items are appended.
+    *
+    * @param oldName the name the item had before the change, or null for a new item
+    * @param newName the name the item has now
+    * @throws java.sql.SQLException when the item cannot be read
+    */
+   public synchronized void itemChanged(String oldName, String newName) throws SQLException {
+      MenuItem fresh = this._esql.queryForObject(Queries.MENU_ITEM, MenuItem.MAPPER, newName);
+      List<MenuItem> items = new ArrayList<MenuItem>(this._menu.getItems());
+      boolean replaced = false;
+      for (int i = 0; i < items.size(); ++i) {
+         String name = items.get(i).getItemName();
+         if (name.equals(oldName) || name.equals(newName)) {
+            if (!replaced && fresh != null) {
+               items.set(i, fresh);
+               replaced = true;
+            } else {
+               items.remove(i--);
+            }//end if
+         }//end if
+      }//end for
+      if (!replaced && fresh != null)
+         items.add(fresh);
+      this._menu = new Menu(items);
+   }//end itemChanged
+
+   /**
+    * Starts listening for menu changes made by other processes.
+    *
+    * @throws java.sql.SQLException when the channel cannot be subscribed
+    */
+   public synchronized void startListening() throws SQLException {
+      if (this._listener != null)
+         return;
+      subscribe();
+      this._listener = Executors.newSingleThreadScheduledExecutor(r -> {
+         Thread t = new Thread(r, "menu-listener");
+         t.setDaemon(true);
+         return t;
+      });
+      this._listener.scheduleWithFixedDelay(this::poll, this._pollMillis, this._pollMillis, TimeUnit.MILLISECONDS);
+   }//end startListening
+
+   /**
+    * Stops the listener and closes its connection.
+    */
+   public synchronized void close() {
+      if (this._listener != null)
+         this._listener.shutdownNow();
+      this._listener = null;
+      if (this._listenConnection == null)
+         return;
+      // closing the session ends its LISTEN as well
+      closeQuietly(this._listenConnection);
+      this._listenConnection = null;
+   }//end close
+
+   /*
+    * The listening connection is held for the life of the cache, because a
+    * LISTEN only applies to the session that issued it.
+    **/
+   private void subscribe() throws SQLException {
+      Connection conn = this._esql.getPool().openUnpooled();
+      try {
+         Statement stmt = conn.createStatement();
+         try {
+            stmt.execute("LISTEN " + CHANNEL);
+         } finally {
+            stmt.close();
+         }//end try
+      } catch (SQLException e) {
+         closeQuietly(conn);
+         throw e;
+      }//end try
+      this._listenConnection = conn;
+   }//end subscribe
+
+   private synchronized void poll() {
+      boolean changed;
+      try {
+         if (this._listenConnection == null) {
+            // an earlier resubscribe failed; anything may have changed since
+            subscribe();
+            changed = true;
+         } else {
+            changed = hasNotifications(this._listenConnection, this._esql.getPool());
+         }//end if
+      } catch (SQLException e) {
+         // the session is gone, and with it the subscription: start over next poll
+         if (this._listenConnection != null)
+            closeQuietly(this._listenConnection);
+         this._listenConnection = null;
+         return;
+      }//end try
+      if (!changed)
+         return;
+      try {
+         reload();
+      } catch (SQLException e) {
+         this._esql.backgroundFailed("Menu reload", e);
+      }//end try
+   }//end poll
+
+   /*
+    * True if a notification came from another process.  Our own updates
+    * notify from pooled connections and were applied by itemChanged().
+    **/
+   private static boolean hasNotifications(Connection conn, ConnectionPool pool) throws SQLException {
+      // the driver only reads pending notifications while running a statement
+      Statement stmt = conn.createStatement();
+      try {
+         stmt.executeQuery("SELECT 1").close();
+      } finally {
+         stmt.close();
+      }//end try
+      org.postgresql.PGNotification[] notes = ((org.postgresql.PGConnection) conn).getNotifications();
+      if (notes == null)
+         return false;
+      for (org.postgresql.PGNotification note : notes)
+         if (!pool.isOwnBackend(note.getPID()))
+            return true;
+      return false;
+   }//end hasNotifications
+
+   private static void closeQuietly(Connection conn) {
+      try {
+         conn.close();
+      } catch (SQLException e) {
+         // the session is gone either way
+      }//end try
+   }//end closeQuietly
+
+}//end MenuCache
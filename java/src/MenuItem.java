@@ -0,0 +1,68 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+/**
+ * One row of the Items table, with the price held in cents.
+ *
+ */
+public final class MenuItem {
+
+   // column names in the order toRow() returns them
+   public static final String[] HEADER = { "itemname", "ingredients", "typeofitem", "price", "description" };
+
+   // decodes a row of Queries.MENU_ITEMS / Queries.MENU_ITEM
+   public static final RowMapper<MenuItem> MAPPER = rs -> new MenuItem(
+      rs.getString(1), rs.getString(2), rs.getString(3), Columns.getCents(rs, 4), rs.getString(5));
+
+   private final String _itemName;
+   private final String _ingredients;
+   private final String _typeOfItem;
+   private final long _priceCents;
+   private final String _description;
+
+   public MenuItem(String itemName, String ingredients, String typeOfItem, long priceCents, String description) {
+      this._itemName = itemName;
+      this._ingredients = ingredients;
+      this._typeOfItem = typeOfItem;
+      this._priceCents = priceCents;
+      this._description = description;
+   }//end MenuItem
+
+   public String getItemName() {
+      return this._itemName;
+   }
+
+   public String getIngredients() {
+      return this._ingredients;
+   }
+
+   public String getTypeOfItem() {
+      return this._typeOfItem;
+   }
+
+   public long getPriceCents() {
+      return this._priceCents;
+   }
+
+   public String getDescription() {
+      return this._description;
+   }
+
+   /**
+    * @return the item as printable values, in HEADER order
+    */
+   public String[] toRow() {
+      return new String[] { this._itemName, this._ingredients, this._typeOfItem,
+                            Columns.formatCents(this._priceCents), this._description };
+   }//end toRow
+
+}//end MenuItem
@@ -0,0 +1,255 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An inverted index over the text columns of one menu snapshot.  Item
+ * names, types, ingredients and descriptions are split into lower cased
+ * words; each word maps to the items containing it together with a weight
+ * for the column it came from, so a word in the name counts more than the
+ * same word in the description.
+ *
+ * The words are kept sorted, so a query word also matches every indexed
+ * word it is a prefix of ("pepp" finds "pepperoni").  An item matches when
+ * it contains every query word, and a word after "no", "not" or "without"
+ * excludes the items containing it instead ("pizza no cheese").  Matches
+ * are ranked by weight, then by name.  toTsQuery() states the same query
+ * for the itemsSearch index, which is built with the 'simple' text search
+ * config: it splits and lower cases words like tokenize() and neither stems
+ * them nor drops any, so both paths find the same items.
+ *
+ */
+public final class MenuSearch {
+
+   // column weights; an exact word match scores twice a prefix match
+   private static final int NAME_WEIGHT = 4;
+   private static final int TYPE_WEIGHT = 2;
+   private static final int INGREDIENTS_WEIGHT = 2;
+   private static final int DESCRIPTION_WEIGHT = 1;
+
+   // words that never narrow a search
+   private static final Set<String> STOP_WORDS = new HashSet<String>(Arrays.asList(
+      "a", "an", "and", "the", "with", "of", "in", "on", "or"));
+
+   // words that turn the word after them into an exclusion
+   private static final Set<String> NEGATIONS = new HashSet<String>(Arrays.asList(
+      "no", "not", "without"));
+
+   /*
+    * A query split into the words an item must contain and the words it
+    * must not contain.
+    **/
+   static final class Terms {
+      final List<String> required = new ArrayList<String>();
+      final List<String> excluded = new ArrayList<String>();
+
+      boolean isEmpty() {
+         return this.required.isEmpty() && this.excluded.isEmpty();
+      }
+   }//end Terms
+
+   private final MenuItem[] _items;
+
+   // sorted words, with the items containing each and their weights
+   private final String[] _words;
+   private final int[][] _postings;
+   private final int[][] _weights;
+
+   /**
+    * @param items the menu items to index
+    */
+   public MenuSearch(List<MenuItem> items) {
+      this._items = items.toArray(new MenuItem[items.size()]);
+      TreeMap<String, Map<Integer, Integer>> index = new TreeMap<String, Map<Integer, Integer>>();
+      for (int i = 0; i < this._items.length; ++i) {
+         MenuItem item = this._items[i];
+         add(index, i, item.getItemName(), NAME_WEIGHT);
+         add(index, i, item.getTypeOfItem(), TYPE_WEIGHT);
+         add(index, i, item.getIngredients(), INGREDIENTS_WEIGHT);
+         add(index, i, item.getDescription(), DESCRIPTION_WEIGHT);
+      }//end for
+
+      this._words = new String[index.size()];
+      this._postings = new int[index.size()][];
+      this._weights = new int[index.size()][];
+      int w = 0;
+      for (Map.Entry<String, Map<Integer, Integer>> e : index.entrySet()) {
+         int n = e.getValue().size();
+         int[] postings = new int[n];
+         int[] weights = new int[n];
+         int p = 0;
+         for (Map.Entry<Integer, Integer> posting : e.getValue().entrySet()) {
+            postings[p] = posting.getKey();
+            weights[p++] = posting.getValue();
+         }//end for
+         this._words[w] = e.getKey();
+         this._postings[w] = postings;
+         this._weights[w++] = weights;
+      }//end for
+   }//end MenuSearch
+
+   /**
+    * Finds the items containing every word of the query and none of its
+    * excluded words, best match first.
+    *
+    * @param query free text, e.g. "pepperoni" or "pizza no cheese"
+    * @param limit the most items returned
+    * @return the matching items in rank order
+    */
+   public List<MenuItem> search(String query, int limit) {
+      Terms terms = parse(query);
+      if (terms.isEmpty())
+         return new ArrayList<MenuItem>();
+
+      int n = this._items.length;
+      int[] matched = new int[n];
+      int[] score = new int[n];
+      int[] best = new int[n];
+      for (String term : terms.required) {
+         match(term, best);
+         for (int i = 0; i < n; ++i) {
+            if (best[i] > 0) {
+               ++matched[i];
+               score[i] += best[i];
+            }//end if
+         }//end for
+      }//end for
+      boolean[] excluded = new boolean[n];
+      for (String term : terms.excluded) {
+         match(term, best);
+         for (int i = 0; i < n; ++i)
+            excluded[i] |= best[i] > 0;
+      }//end for
+
+      List<Integer> hits = new ArrayList<Integer>();
+      for (int i = 0; i < n; ++i)
+         if (matched[i] == terms.required.size() && !excluded[i])
+            hits.add(i);
+      hits.sort((a, b) -> score[a] != score[b] ? score[b] - score[a]
+                        : this._items[a].getItemName().compareTo(this._items[b].getItemName()));
+
+      List<MenuItem> results = new ArrayList<MenuItem>(Math.min(limit, hits.size()));
+      for (int i = 0; i < hits.size() && i < limit; ++i)
+         results.add(this._items[hits.get(i)]);
+      return results;
+   }//end search
+
+   /**
+    * States a query as Postgres text search syntax with the meaning search()
+    * gives it, for to_tsquery(): every word a prefix match, required words
+    * joined with &amp; and excluded words negated with !.
+    *
+    * @param query free text, e.g. "pizza no cheese"
+    * @return the tsquery, e.g. "pizza:* &amp; !cheese:*", or "" when the query
+    *         has no words that narrow the search
+    */
+   public static String toTsQuery(String query) {
+      Terms terms = parse(query);
+      StringBuilder sb = new StringBuilder();
+      // tokenize() keeps only letters and digits, so no word needs quoting
+      for (String term : terms.required)
+         sb.append(sb.length() > 0 ? " & " : "").append(term).append(":*");
+      for (String term : terms.excluded)
+         sb.append(sb.length() > 0 ? " & !" : "!").append(term).append(":*");
+      return sb.toString();
+   }//end toTsQuery
+
+   /**
+    * Splits a query into required and excluded words, dropping stop words.
+    *
+    * @param query free text, may be null
+    * @return the terms of the query
+    */
+   static Terms parse(String query) {
+      Terms terms = new Terms();
+      boolean negated = false;
+      for (String word : tokenize(query)) {
+         if (NEGATIONS.contains(word)) {
+            negated = true;
+         } else if (!STOP_WORDS.contains(word)) {
+            (negated ? terms.excluded : terms.required).add(word);
+            negated = false;
+         }//end if
+      }//end for
+      return terms;
+   }//end parse
+
+   /**
+    * Splits text into lower cased words of letters and digits.
+    *
+    * @param text the text, may be null
+    * @return the words in order
+    */
+   static List<String> tokenize(String text) {
+      List<String> words = new ArrayList<String>();
+      if (text == null)
+         return words;
+      int start = -1;
+      for (int i = 0, len = text.length(); i <= len; ++i) {
+         boolean wordChar = i < len && Character.isLetterOrDigit(text.charAt(i));
+         if (wordChar && start < 0) {
+            start = i;
+         } else if (!wordChar && start >= 0) {
+            words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+            start = -1;
+         }//end if
+      }//end for
+      return words;
+   }//end tokenize
+
+   private static void add(TreeMap<String, Map<Integer, Integer>> index, int item, String text, int weight) {
+      for (String word : tokenize(text)) {
+         Map<Integer, Integer> postings = index.get(word);
+         if (postings == null)
+            index.put(word, postings = new HashMap<Integer, Integer>());
+         Integer prev = postings.get(item);
+         if (prev == null || prev < weight)
+            postings.put(item, weight);
+      }//end for
+   }//end add
+
+   // the best weight each item earns for the term, however many words it prefixes
+   private void match(String term, int[] best) {
+      Arrays.fill(best, 0);
+      for (int w = lowerBound(term); w < this._words.length && this._words[w].startsWith(term); ++w) {
+         int factor = this._words[w].length() == term.length() ? 2 : 1;
+         int[] postings = this._postings[w];
+         int[] weights = this._weights[w];
+         for (int p = 0; p < postings.length; ++p)
+            best[postings[p]] = Math.max(best[postings[p]], weights[p] * factor);
+      }//end for
+   }//end match
+
+   // index of the first word not less than the term
+   private int lowerBound(String term) {
+      int lo = 0;
+      int hi = this._words.length;
+      while (lo < hi) {
+         int mid = (lo + hi) >>> 1;
+         if (this._words[mid].compareTo(term) < 0)
+            lo = mid + 1;
+         else
+            hi = mid;
+      }//end while
+      return lo;
+   }//end lowerBound
+
+}//end MenuSearch
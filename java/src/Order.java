@@ -0,0 +1,123 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An order being placed: the customer, the store and the requested line
+ * items.  Lines for the same item are merged since ItemsInOrder is keyed on
+ * (orderID, itemName).  Once written, the order carries its id, its total
+ * and the names of any requested items that are not on the menu.
+ *
+ */
+public class Order {
+
+   private final String _login;
+   private final int _storeID;
+   private final LinkedHashMap<String, Integer> _lines = new LinkedHashMap<String, Integer>();
+   private final List<String> _rejected = new ArrayList<String>();
+   private int _orderID = 0;
+   private long _totalCents = 0;
+   private Timestamp _orderTimestamp = null;
+
+   /**
+    * @param login the customer placing the order
+    * @param storeID the store the order is placed at
+    */
+   public Order(String login, int storeID) {
+      this._login = login;
+      this._storeID = storeID;
+   }//end Order
+
+   /**
+    * Adds a line item, merging it with an earlier line for the same item.
+    *
+    * @param itemName the menu item
+    * @param quantity how many, must be positive
+    */
+   public void addItem(String itemName, int quantity) {
+      if (quantity <= 0)
+         throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+      Integer previous = this._lines.get(itemName);
+      this._lines.put(itemName, previous == null ? quantity : previous + quantity);
+   }//end addItem
+
+   public String getLogin() {
+      return this._login;
+   }
+
+   public int getStoreID() {
+      return this._storeID;
+   }
+
+   /**
+    * @return item name to quantity, in the order the items were added
+    */
+   public Map<String, Integer> getLines() {
+      return Collections.unmodifiableMap(this._lines);
+   }
+
+   public boolean isEmpty() {
+      return this._lines.isEmpty();
+   }
+
+   /**
+    * @return the generated order id, or 0 until the order has been written
+    */
+   public int getOrderID() {
+      return this._orderID;
+   }
+
+   /**
+    * @return the order total in cents, valid once the order has been written
+    */
+   public long getTotalCents() {
+      return this._totalCents;
+   }
+
+   /**
+    * @return the time the database recorded for the order, valid once written
+    */
+   public Timestamp getOrderTimestamp() {
+      return this._orderTimestamp;
+   }
+
+   /**
+    * @return requested items that were not found on the menu
+    */
+   public List<String> getRejectedItems() {
+      return Collections.unmodifiableList(this._rejected);
+   }
+
+   void setOrderID(int orderID) {
+      this._orderID = orderID;
+   }
+
+   void setTotalCents(long totalCents) {
+      this._totalCents = totalCents;
+   }
+
+   void setOrderTimestamp(Timestamp orderTimestamp) {
+      this._orderTimestamp = orderTimestamp;
+   }
+
+   void reject(String itemName) {
+      this._lines.remove(itemName);
+      this._rejected.add(itemName);
+   }
+
+}//end Order
@@ -0,0 +1,116 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An order header together with its line items, as read by the single
+ * joined Queries.ORDER_DETAIL query.
+ *
+ */
+public final class OrderDetail {
+
+   // column names in the order Line.toRow() returns them
+   public static final String[] LINE_HEADER = { "itemname", "quantity", "price" };
+
+   // order columns, then one line item per row; orders without items yield one row of nulls
+   public static final String COLUMNS = "o.orderID, o.login, o.storeID, o.totalPrice, o.orderTimestamp, "
+      + "o.orderStatus, o.version, l.itemName, l.quantity, l.price";
+
+   /**
+    * One item of an order.
+    */
+   public static final class Line {
+      private final String _itemName;
+      private final int _quantity;
+      private final long _priceCents;
+
+      public Line(String itemName, int quantity, long priceCents) {
+         this._itemName = itemName;
+         this._quantity = quantity;
+         this._priceCents = priceCents;
+      }
+
+      public String getItemName() {
+         return this._itemName;
+      }
+
+      public int getQuantity() {
+         return this._quantity;
+      }
+
+      /**
+       * @return the unit price the item had when the order was placed
+       */
+      public long getPriceCents() {
+         return this._priceCents;
+      }
+
+      /**
+       * @return the line as printable values, in LINE_HEADER order
+       */
+      public String[] toRow() {
+         return new String[] { this._itemName, Integer.toString(this._quantity),
+                               Columns.formatCents(this._priceCents) };
+      }
+   }//end Line
+
+   private final OrderSummary _summary;
+   private final List<Line> _lines;
+
+   public OrderDetail(OrderSummary summary, List<Line> lines) {
+      this._summary = summary;
+      this._lines = Collections.unmodifiableList(lines);
+   }//end OrderDetail
+
+   /**
+    * Reads every row of an ORDER_DETAIL result.
+    *
+    * @param rs the result, positioned before the first row
+    * @return the order, or null when the result is empty
+    * @throws java.sql.SQLException when a column cannot be read
+    */
+   public static OrderDetail read(ResultSet rs) throws SQLException {
+      OrderSummary summary = null;
+      List<Line> lines = new ArrayList<Line>();
+      while (rs.next()) {
+         if (summary == null)
+            summary = OrderSummary.MAPPER.map(rs);
+         String itemName = rs.getString(8);
+         if (itemName != null)
+            lines.add(new Line(itemName, rs.getInt(9), Columns.getCents(rs, 10)));
+      }//end while
+      return summary == null ? null : new OrderDetail(summary, lines);
+   }//end read
+
+   public OrderSummary getSummary() {
+      return this._summary;
+   }
+
+   public List<Line> getLines() {
+      return this._lines;
+   }
+
+   /**
+    * @return true once the order is complete, cancelled or incomplete, after
+    *         which it no longer changes
+    */
+   public boolean isFinal() {
+      OrderStatus status = OrderStatus.parse(this._summary.getOrderStatus());
+      return status != null && status.isFinal();
+   }//end isFinal
+
+}//end OrderDetail
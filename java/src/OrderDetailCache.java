@@ -0,0 +1,92 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads order details with one joined query and keeps completed orders in
+ * a bounded LRU map.  A complete order does not change any more, so repeat
+ * lookups of it are answered without a round trip; orders that are still
+ * moving through their statuses are always read fresh.  A status change
+ * made through this process drops the order from the cache, in case a
+ * complete order is reopened.
+ *
+ */
+public class OrderDetailCache {
+
+   private final PizzaStore _esql;
+   private final LinkedHashMap<Integer, OrderDetail> _completed;
+
+   /**
+    * @param esql the store orders are read through
+    * @param capacity most completed orders kept
+    */
+   public OrderDetailCache(PizzaStore esql, final int capacity) {
+      this._esql = esql;
+      this._completed = new LinkedHashMap<Integer, OrderDetail>(16, 0.75f, true) {
+         protected boolean removeEldestEntry(Map.Entry<Integer, OrderDetail> eldest) {
+            return size() > capacity;
+         }
+      };
+   }//end OrderDetailCache
+
+   /**
+    * @param orderID the order
+    * @param login the customer the order must belong to, or null for staff lookups
+    * @return the order with its items, or null when there is no such order for that customer
+    * @throws java.sql.SQLException when the order cannot be read
+    */
+   public OrderDetail get(int orderID, String login) throws SQLException {
+      OrderDetail detail;
+      synchronized (this) {
+         detail = this._completed.get(orderID);
+      }//end synchronized
+      if (detail == null) {
+         detail = login == null ? load(Queries.ORDER_DETAIL, orderID) : load(Queries.ORDER_DETAIL_FOR_USER, orderID, login);
+         if (detail != null && detail.isFinal()) {
+            synchronized (this) {
+               this._completed.put(orderID, detail);
+            }//end synchronized
+         }//end if
+      }//end if
+      if (detail != null && login != null && !login.equals(detail.getSummary().getLogin()))
+         return null;
+      return detail;
+   }//end get
+
+   /**
+    * Forgets a cached order after its status changed.
+    *
+    * @param orderID the order
+    */
+   public synchronized void statusChanged(int orderID) {
+      this._completed.remove(orderID);
+   }//end statusChanged
+
+   private OrderDetail load(final Query query, final Object... params) throws SQLException {
+      return this._esql.withConnection(pc -> {
+         PreparedStatement stmt = pc.prepare(query.getSql());
+         PizzaStore.bind(stmt, params);
+         ResultSet rs = stmt.executeQuery();
+         try {
+            return OrderDetail.read(rs);
+         } finally {
+            rs.close();
+         }//end try
+      });
+   }//end load
+
+}//end OrderDetailCache
@@ -0,0 +1,160 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Pages through order history newest first using keyset pagination.  Each
+ * page starts strictly after the (orderTimestamp, orderID) of the last row
+ * of the previous page, so the database seeks straight to it through the
+ * foodorderLoginTimestamp index instead of skipping OFFSET rows: page N
+ * costs the same as page 1.  forEach() reads everything after a cursor as
+ * one streamed query instead, for listings that want the rest at once.
+ *
+ */
+public class OrderHistory {
+
+   /**
+    * Position after the last order of a page.  Keeps the full timestamp
+    * precision so orders placed within the same millisecond are not skipped.
+    */
+   public static final class Cursor {
+      private final Timestamp _orderTimestamp;
+      private final int _orderID;
+
+      Cursor(Timestamp orderTimestamp, int orderID) {
+         this._orderTimestamp = orderTimestamp;
+         this._orderID = orderID;
+      }
+
+      /**
+       * @return the cursor as text that decode() reads back, for clients
+       *         that page through the history over several requests
+       */
+      public String encode() {
+         return this._orderTimestamp + "|" + this._orderID;
+      }
+
+      /**
+       * @param text a cursor produced by encode()
+       * @return the cursor
+       * @throws IllegalArgumentException when the text is not a cursor
+       */
+      public static Cursor decode(String text) {
+         int bar = text.lastIndexOf('|');
+         if (bar < 0)
+            throw new IllegalArgumentException("Invalid cursor: " + text);
+         return new Cursor(Timestamp.valueOf(text.substring(0, bar)), Integer.parseInt(text.substring(bar + 1)));
+      }
+   }//end Cursor
+
+   /**
+    * One page of orders and the cursor for the following page.
+    */
+   public static final class Page {
+      private final List<OrderSummary> _orders;
+      private final Cursor _next;
+
+      Page(List<OrderSummary> orders, Cursor next) {
+         this._orders = Collections.unmodifiableList(orders);
+         this._next = next;
+      }
+
+      public List<OrderSummary> getOrders() {
+         return this._orders;
+      }
+
+      /**
+       * @return the cursor of the next page, or null on the last page
+       */
+      public Cursor getNext() {
+         return this._next;
+      }
+   }//end Page
+
+   private final PizzaStore _esql;
+
+   public OrderHistory(PizzaStore esql) {
+      this._esql = esql;
+   }//end OrderHistory
+
+   /**
+    * Reads one page of a customer's orders, newest first.
+    *
+    * @param login the customer
+    * @param after the cursor returned with the previous page, null for the first page
+    * @param pageSize maximum number of orders on the page
+    * @return the page
+    * @throws java.sql.SQLException when the orders cannot be read
+    */
+   public Page forUser(String login, Cursor after, int pageSize) throws SQLException {
+      // one extra row tells whether another page follows
+      List<OrderSummary> rows = after == null
+         ? this._esql.queryForList(Queries.USER_ORDERS_FIRST_PAGE, OrderSummary.MAPPER, login, pageSize + 1)
+         : this._esql.queryForList(Queries.USER_ORDERS_NEXT_PAGE, OrderSummary.MAPPER, login,
+                                   after._orderTimestamp, after._orderID, pageSize + 1);
+      return toPage(rows, pageSize);
+   }//end forUser
+
+   /**
+    * Reads one page of every customer's orders, newest first.
+    *
+    * @param after the cursor returned with the previous page, null for the first page
+    * @param pageSize maximum number of orders on the page
+    * @return the page
+    * @throws java.sql.SQLException when the orders cannot be read
+    */
+   public Page all(Cursor after, int pageSize) throws SQLException {
+      List<OrderSummary> rows = after == null
+         ? this._esql.queryForList(Queries.ALL_ORDERS_FIRST_PAGE, OrderSummary.MAPPER, pageSize + 1)
+         : this._esql.queryForList(Queries.ALL_ORDERS_NEXT_PAGE, OrderSummary.MAPPER,
+                                   after._orderTimestamp, after._orderID, pageSize + 1);
+      return toPage(rows, pageSize);
+   }//end all
+
+   /**
+    * Streams the orders after a cursor, newest first, through a cursor-based
+    * query, so the whole history is read in constant heap.
+    *
+    * @param login the customer, or null for every customer's orders
+    * @param after the cursor returned with a page, null to start at the newest order
+    * @param handler called for every order until it returns false
+    * @return the number of orders handed to the handler
+    * @throws java.sql.SQLException when the orders cannot be read
+    */
+   public long forEach(String login, Cursor after, final Predicate<OrderSummary> handler) throws SQLException {
+      RowHandler rows = rs -> handler.test(OrderSummary.MAPPER.map(rs));
+      // the page queries with no effective limit
+      int all = Integer.MAX_VALUE;
+      if (login != null)
+         return after == null
+            ? this._esql.forEachRow(Queries.USER_ORDERS_FIRST_PAGE, rows, login, all)
+            : this._esql.forEachRow(Queries.USER_ORDERS_NEXT_PAGE, rows, login, after._orderTimestamp,
+                                    after._orderID, all);
+      return after == null
+         ? this._esql.forEachRow(Queries.ALL_ORDERS_FIRST_PAGE, rows, all)
+         : this._esql.forEachRow(Queries.ALL_ORDERS_NEXT_PAGE, rows, after._orderTimestamp, after._orderID, all);
+   }//end forEach
+
+   private static Page toPage(List<OrderSummary> rows, int pageSize) {
+      if (rows.size() <= pageSize)
+         return new Page(rows, null);
+      List<OrderSummary> orders = rows.subList(0, pageSize);
+      OrderSummary last = orders.get(pageSize - 1);
+      return new Page(orders, new Cursor(last.getOrderTimestamp(), last.getOrderID()));
+   }//end toPage
+
+}//end OrderHistory
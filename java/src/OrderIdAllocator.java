@@ -0,0 +1,80 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out FoodOrder ids from blocks reserved on FoodOrder_orderID_seq.
+ * The sequence increments by BLOCK_SIZE, so every nextval reserves the
+ * ids [value, value + BLOCK_SIZE) for this process alone (hi/lo).  Ids
+ * within a block are handed out with a single atomic increment; only the
+ * thread that exhausts a block goes to the database for the next one.
+ *
+ * Ids of a block that is abandoned when the process exits are never used,
+ * so order ids are unique and increasing per process but not gap free.
+ *
+ */
+public class OrderIdAllocator {
+
+   // must match INCREMENT BY of FoodOrder_orderID_seq in create_tables.sql
+   public static final int BLOCK_SIZE = 100;
+
+   private static final class Block {
+      final AtomicInteger next;
+      final int limit;
+
+      Block(int first, int limit) {
+         this.next = new AtomicInteger(first);
+         this.limit = limit;
+      }
+   }//end Block
+
+   private volatile Block _block = new Block(0, 0);
+
+   /**
+    * Returns the next order id.  When the current block is exhausted a new
+    * one is reserved with nextval on the given connection; nextval is not
+    * transactional, so it is safe to call inside an order transaction that
+    * later rolls back.
+    *
+    * @param pc the connection used if a new block has to be reserved
+    * @return a unique order id
+    * @throws java.sql.SQLException when a new block cannot be reserved
+    */
+   public int next(ConnectionPool.PooledConnection pc) throws SQLException {
+      while (true) {
+         Block b = this._block;
+         int id = b.next.getAndIncrement();
+         if (id < b.limit)
+            return id;
+         synchronized (this) {
+            // another thread may have refilled while we waited for the lock
+            if (this._block == b)
+               this._block = reserve(pc);
+         }//end synchronized
+      }//end while
+   }//end next
+
+   private static Block reserve(ConnectionPool.PooledConnection pc) throws SQLException {
+      ResultSet rs = pc.prepare(Queries.NEXT_ORDER_ID_BLOCK.getSql()).executeQuery();
+      try {
+         rs.next();
+         int first = rs.getInt(1);
+         return new Block(first, first + BLOCK_SIZE);
+      } finally {
+         rs.close();
+      }//end try
+   }//end reserve
+
+}//end OrderIdAllocator
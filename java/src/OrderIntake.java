@@ -0,0 +1,235 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Group commit for placed orders.  Callers hand their orders to a bounded
+ * queue; a few writer threads take whatever has queued up, at most maxBatch
+ * orders or whatever arrives within the linger time after the first, and
+ * write the lot in one transaction with one batch per table.  Under load
+ * many orders share a single commit, and so a single WAL flush, instead of
+ * paying for one each.
+ *
+ * When the queue is full submit() waits up to the offer timeout and then
+ * refuses the order, so a slow database pushes back on the callers instead
+ * of piling up orders in memory.  When a batch fails its orders are retried
+ * one at a time, so one bad order does not fail the others.
+ *
+ */
+public class OrderIntake {
+
+   // an order waiting for its batch, and the caller waiting for the order
+   private static final class Pending {
+      final Order order;
+      final CompletableFuture<Order> done = new CompletableFuture<Order>();
+
+      Pending(Order order) {
+         this.order = order;
+      }
+   }//end Pending
+
+   // how often an idle writer looks whether the intake was closed
+   private static final long IDLE_POLL_MS = 100L;
+
+   private final PizzaStore _esql;
+   private final OrderWriter _writer;
+   private final BlockingQueue<Pending> _queue;
+   private final int _maxBatch;
+   private final long _lingerNanos;
+   private final long _offerTimeoutMs;
+   private final Thread[] _writers;
+
+   private final AtomicLong _batches = new AtomicLong();
+   private final AtomicLong _orders = new AtomicLong();
+   private final AtomicLong _retries = new AtomicLong();
+
+   private volatile boolean _closed;
+
+   // submit() queues under the read lock and close() closes under the write
+   // lock, so no order is queued after the writers may have seen the close
+   private final ReadWriteLock _closing = new ReentrantReadWriteLock();
+
+   /**
+    * Starts the writer threads.
+    *
+    * @param esql the store the orders are written to
+    * @param queueSize most orders waiting to be written
+    * @param maxBatch most orders written in one transaction
+    * @param lingerMillis how long a writer waits for more orders after the first
+    * @param offerTimeoutMillis how long submit() waits for room in a full queue
+    * @param writers number of writer threads
+    */
+   public OrderIntake(PizzaStore esql, int queueSize, int maxBatch, long lingerMillis,
+                      long offerTimeoutMillis, int writers) {
+      if (queueSize < 1 || maxBatch < 1 || writers < 1)
+         throw new IllegalArgumentException("queueSize, maxBatch and writers must be positive");
+      this._esql = esql;
+      this._writer = new OrderWriter(esql);
+      this._queue = new ArrayBlockingQueue<Pending>(queueSize);
+      this._maxBatch = maxBatch;
+      this._lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, lingerMillis));
+      this._offerTimeoutMs = Math.max(0L, offerTimeoutMillis);
+      this._writers = new Thread[writers];
+      for (int i = 0; i < writers; i++) {
+         Thread t = new Thread(this::run, "order-intake-" + i);
+         t.setDaemon(true);
+         this._writers[i] = t;
+         t.start();
+      }//end for
+   }//end OrderIntake
+
+   /**
+    * Queues an order.  The future completes with the order once it is
+    * committed; its order id is 0 when none of its items exist.
+    *
+    * @param order the order to place
+    * @return the future of the placed order
+    * @throws java.util.concurrent.RejectedExecutionException when the intake
+    *         is closed or the queue stayed full for the offer timeout
+    */
+   public CompletableFuture<Order> submit(Order order) {
+      Pending pending = new Pending(order);
+      this._closing.readLock().lock();
+      try {
+         if (this._closed)
+            throw new RejectedExecutionException("Order intake is closed");
+         if (!this._queue.offer(pending, this._offerTimeoutMs, TimeUnit.MILLISECONDS))
+            throw new RejectedExecutionException("Too many orders waiting, try again later");
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new RejectedExecutionException("Interrupted while queueing the order", e);
+      } finally {
+         this._closing.readLock().unlock();
+      }//end try
+      return pending.done;
+   }//end submit
+
+   /**
+    * @return the number of transactions written
+    */
+   public long getBatches() {
+      return this._batches.get();
+   }
+
+   /**
+    * @return the number of orders written in batches
+    */
+   public long getOrders() {
+      return this._orders.get();
+   }
+
+   /**
+    * @return the number of orders retried alone after their batch failed
+    */
+   public long getRetries() {
+      return this._retries.get();
+   }
+
+   /**
+    * Refuses new orders, writes the ones already queued and stops the writers.
+    * Waits for submit() calls that are already queueing, at most the offer
+    * timeout.
+    */
+   public void close() {
+      this._closing.writeLock().lock();
+      try {
+         this._closed = true;
+      } finally {
+         this._closing.writeLock().unlock();
+      }//end try
+      for (Thread t : this._writers) {
+         try {
+            t.join();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            break;
+         }//end try
+      }//end for
+      // only left when interrupted above; nobody will write these any more
+      Pending pending;
+      while ((pending = this._queue.poll()) != null)
+         pending.done.completeExceptionally(new RejectedExecutionException("Order intake is closed"));
+   }//end close
+
+   private void run() {
+      List<Pending> batch = new ArrayList<Pending>(this._maxBatch);
+      try {
+         while (!this._closed || !this._queue.isEmpty()) {
+            Pending first = this._queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+            if (first == null)
+               continue;
+            batch.add(first);
+            long deadline = System.nanoTime() + this._lingerNanos;
+            while (batch.size() < this._maxBatch) {
+               this._queue.drainTo(batch, this._maxBatch - batch.size());
+               long left = deadline - System.nanoTime();
+               if (batch.size() >= this._maxBatch || left <= 0)
+                  break;
+               Pending next = this._queue.poll(left, TimeUnit.NANOSECONDS);
+               if (next == null)
+                  break;
+               batch.add(next);
+            }//end while
+            flush(batch);
+            batch.clear();
+         }//end while
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }//end try
+   }//end run
+
+   private void flush(List<Pending> batch) {
+      final List<Order> orders = new ArrayList<Order>(batch.size());
+      for (Pending pending : batch)
+         orders.add(pending.order);
+      try {
+         List<Order> written = this._esql.withTransaction(pc -> this._writer.writeAll(pc, orders));
+         this._batches.incrementAndGet();
+         this._orders.addAndGet(written.size());
+         for (Order order : written)
+            this._writer.committed(order);
+         for (Pending pending : batch)
+            pending.done.complete(pending.order);
+      } catch (SQLException | RuntimeException e) {
+         if (batch.size() == 1) {
+            batch.get(0).done.completeExceptionally(e);
+            return;
+         }//end if
+         for (Pending pending : batch)
+            retry(pending);
+      }//end try
+   }//end flush
+
+   private void retry(Pending pending) {
+      this._retries.incrementAndGet();
+      // the failed batch had already handed out an id
+      pending.order.setOrderID(0);
+      try {
+         this._writer.place(pending.order);
+         pending.done.complete(pending.order);
+      } catch (SQLException | RuntimeException e) {
+         pending.done.completeExceptionally(e);
+      }//end try
+   }//end retry
+
+}//end OrderIntake
@@ -0,0 +1,119 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The life cycle of an order, matching the OrderStatus enum type of the
+ * database.  An order moves placed, in progress, out for delivery, complete,
+ * and may be cancelled or marked incomplete before it gets there.  Complete,
+ * cancelled and incomplete orders no longer change.
+ *
+ */
+public enum OrderStatus {
+
+   PLACED("placed"),
+   IN_PROGRESS("in progress"),
+   OUT_FOR_DELIVERY("out for delivery"),
+   COMPLETE("complete"),
+   CANCELLED("cancelled"),
+   INCOMPLETE("incomplete");
+
+   static {
+      PLACED._sources = EnumSet.noneOf(OrderStatus.class);
+      IN_PROGRESS._sources = EnumSet.of(PLACED);
+      OUT_FOR_DELIVERY._sources = EnumSet.of(IN_PROGRESS);
+      COMPLETE._sources = EnumSet.of(OUT_FOR_DELIVERY);
+      CANCELLED._sources = EnumSet.of(PLACED, IN_PROGRESS, OUT_FOR_DELIVERY);
+      INCOMPLETE._sources = EnumSet.of(PLACED, IN_PROGRESS, OUT_FOR_DELIVERY);
+      for (OrderStatus status : values())
+         status._sourcesLiteral = arrayLiteral(status._sources);
+   }
+
+   private final String _label;
+
+   // the statuses an order may move to this one from, set once all constants exist
+   private Set<OrderStatus> _sources;
+   private String _sourcesLiteral;
+
+   OrderStatus(String label) {
+      this._label = label;
+   }
+
+   /**
+    * @return the status as the database stores and prints it
+    */
+   public String getLabel() {
+      return this._label;
+   }
+
+   /**
+    * @return true for complete, cancelled and incomplete orders, which no longer change
+    */
+   public boolean isFinal() {
+      return this == COMPLETE || this == CANCELLED || this == INCOMPLETE;
+   }
+
+   /**
+    * @param next a status
+    * @return true if an order in this status may move to next
+    */
+   public boolean canBecome(OrderStatus next) {
+      return next._sources.contains(this);
+   }
+
+   /**
+    * @return the statuses an order may move to this one from, as an array
+    *         literal for CAST(? AS OrderStatus[])
+    */
+   public String getSourcesLiteral() {
+      return this._sourcesLiteral;
+   }
+
+   public String toString() {
+      return this._label;
+   }
+
+   /**
+    * @param label a status as typed or read, in any case and with padding
+    * @return the status, or null when there is none by that name
+    */
+   public static OrderStatus parse(String label) {
+      if (label == null)
+         return null;
+      String key = label.trim().toLowerCase(Locale.ROOT);
+      for (OrderStatus status : values())
+         if (status._label.equals(key))
+            return status;
+      return null;
+   }//end parse
+
+   /**
+    * @return every status label, for prompts and error messages
+    */
+   public static String labels() {
+      StringBuilder sb = new StringBuilder();
+      for (OrderStatus status : values())
+         sb.append(sb.length() > 0 ? ", " : "").append(status._label);
+      return sb.toString();
+   }//end labels
+
+   private static String arrayLiteral(Set<OrderStatus> statuses) {
+      StringBuilder sb = new StringBuilder("{");
+      for (OrderStatus status : statuses)
+         sb.append(sb.length() > 1 ? ",\"" : "\"").append(status._label).append('"');
+      return sb.append('}').toString();
+   }//end arrayLiteral
+
+}//end OrderStatus
@@ -0,0 +1,108 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.sql.Timestamp;
+
+/**
+ * The header of one FoodOrder row, without its line items.
+ *
+ */
+public final class OrderSummary {
+
+   // column names in the order toRow() returns them
+   public static final String[] HEADER = { "orderid", "login", "storeid", "totalprice", "ordertimestamp", "orderstatus", "version" };
+
+   // select list every summary query uses, matching MAPPER
+   public static final String COLUMNS = "orderID, login, storeID, totalPrice, orderTimestamp, orderStatus, version";
+
+   public static final RowMapper<OrderSummary> MAPPER = rs -> new OrderSummary(
+      rs.getInt(1), rs.getString(2), rs.getInt(3), Columns.getCents(rs, 4),
+      rs.getTimestamp(5), Columns.getTrimmed(rs, 6), rs.getInt(7));
+
+   private final int _orderID;
+   private final String _login;
+   private final int _storeID;
+   private final long _totalCents;
+   private final Timestamp _orderTimestamp;
+   private final String _orderStatus;
+   private final int _version;
+
+   public OrderSummary(int orderID, String login, int storeID, long totalCents,
+                       Timestamp orderTimestamp, String orderStatus, int version) {
+      this._orderID = orderID;
+      this._login = login;
+      this._storeID = storeID;
+      this._totalCents = totalCents;
+      this._orderTimestamp = orderTimestamp;
+      this._orderStatus = orderStatus;
+      this._version = version;
+   }//end OrderSummary
+
+   public int getOrderID() {
+      return this._orderID;
+   }
+
+   public String getLogin() {
+      return this._login;
+   }
+
+   public int getStoreID() {
+      return this._storeID;
+   }
+
+   public long getTotalCents() {
+      return this._totalCents;
+   }
+
+   /**
+    * @return the order time with the full microsecond precision of the
+    *         column, as needed for keyset cursors
+    */
+   public Timestamp getOrderTimestamp() {
+      return this._orderTimestamp;
+   }
+
+   public long getOrderTimeMillis() {
+      return this._orderTimestamp == null ? 0L : this._orderTimestamp.getTime();
+   }
+
+   public String getOrderStatus() {
+      return this._orderStatus;
+   }
+
+   /**
+    * @return the number of status changes so far, for compare-and-set updates
+    */
+   public int getVersion() {
+      return this._version;
+   }
+
+   /**
+    * @param orderStatus the new status
+    * @param version the version the status change wrote
+    * @return a copy of this summary with the given status
+    */
+   public OrderSummary withStatus(String orderStatus, int version) {
+      return new OrderSummary(this._orderID, this._login, this._storeID, this._totalCents,
+                              this._orderTimestamp, orderStatus, version);
+   }//end withStatus
+
+   /**
+    * @return the order as printable values, in HEADER order
+    */
+   public String[] toRow() {
+      return new String[] { Integer.toString(this._orderID), this._login, Integer.toString(this._storeID),
+                            Columns.formatCents(this._totalCents), String.valueOf(this._orderTimestamp),
+                            this._orderStatus, Integer.toString(this._version) };
+   }//end toRow
+
+}//end OrderSummary
@@ -0,0 +1,234 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes orders as a single atomic unit.  The prices of the ordered items
+ * are read from Items with FOR SHARE in the same transaction that writes
+ * the order, one query per batch, and kept on each line item; the order
+ * total is their sum, computed once here rather than by the database.  The
+ * share locks make a concurrent menu update wait until the order commits,
+ * so every line is priced at what Items held when the order was written,
+ * never at a stale in-memory copy.  The order row and every line item are
+ * inserted in the same transaction, and the line items go out as one JDBC
+ * batch.  A failure at any point rolls the whole order back, so no
+ * FoodOrder row is ever left without its items.
+ *
+ */
+public class OrderWriter {
+
+   private final PizzaStore _esql;
+
+   /**
+    * @param esql the store whose connection pool the orders are written with
+    */
+   public OrderWriter(PizzaStore esql) {
+      this._esql = esql;
+   }//end OrderWriter
+
+   /**
+    * Places an order in its own transaction.  Items that are not on the menu
+    * are dropped from the order and reported through getRejectedItems().
+    *
+    * @param order the order to place
+    * @return true if the order was written, false if none of its items exist
+    * @throws java.sql.SQLException when the order could not be written
+    */
+   public boolean place(final Order order) throws SQLException {
+      if (!this._esql.withTransaction(pc -> write(pc, order)))
+         return false;
+      committed(order);
+      return true;
+   }//end place
+
+   /**
+    * Publishes a committed order to the in-memory caches.
+    *
+    * @param order an order that write() wrote and that has been committed
+    */
+   void committed(Order order) {
+      this._esql.getRecentOrders().orderPlaced(new OrderSummary(
+         order.getOrderID(), order.getLogin(), order.getStoreID(), order.getTotalCents(),
+         order.getOrderTimestamp(), OrderStatus.PLACED.getLabel(), 0));
+   }//end committed
+
+   /**
+    * Writes an order on a connection that is already inside a transaction.
+    * The caller owns commit and rollback.
+    *
+    * @param pc a connection with autocommit off
+    * @param order the order to write
+    * @return true if the order was written, false if none of its items exist
+    * @throws java.sql.SQLException when the order could not be written
+    */
+   boolean write(ConnectionPool.PooledConnection pc, Order order) throws SQLException {
+      Map<String, Long> prices = lockPrices(pc, Collections.singletonList(order));
+      long totalCents = price(order, prices);
+      if (totalCents < 0)
+         return false;
+
+      int orderID = this._esql.getOrderIdAllocator().next(pc);
+
+      PreparedStatement stmt = pc.prepare(Queries.INSERT_ORDER.getSql());
+      PizzaStore.bind(stmt, new Object[] { orderID, order.getLogin(), order.getStoreID(),
+                                           Columns.toDecimal(totalCents) });
+      ResultSet rs = stmt.executeQuery();
+      try {
+         rs.next();
+         order.setOrderTimestamp(rs.getTimestamp(1));
+      } finally {
+         rs.close();
+      }//end try
+
+      order.setOrderID(orderID);
+      order.setTotalCents(totalCents);
+      writeLines(pc, Collections.singletonList(order), prices);
+      return true;
+   }//end write
+
+   /**
+    * Writes several orders on a connection that is already inside a
+    * transaction, with one batch for all order rows and one for all their
+    * lines.  Orders none of whose items exist are skipped and keep order id
+    * 0.  The caller owns commit and rollback.
+    *
+    * @param pc a connection with autocommit off
+    * @param orders the orders to write
+    * @return the orders written
+    * @throws java.sql.SQLException when the orders could not be written
+    */
+   List<Order> writeAll(ConnectionPool.PooledConnection pc, List<Order> orders) throws SQLException {
+      Map<String, Long> prices = lockPrices(pc, orders);
+      List<Order> written = new ArrayList<Order>(orders.size());
+      for (Order order : orders) {
+         long totalCents = price(order, prices);
+         if (totalCents < 0)
+            continue;
+         order.setOrderID(this._esql.getOrderIdAllocator().next(pc));
+         order.setTotalCents(totalCents);
+         written.add(order);
+      }//end for
+      if (written.isEmpty())
+         return written;
+
+      // NOW() is the transaction start, so it is the timestamp of every row of the batch
+      Timestamp now;
+      ResultSet rs = pc.prepare(Queries.TRANSACTION_TIMESTAMP.getSql()).executeQuery();
+      try {
+         rs.next();
+         now = rs.getTimestamp(1);
+      } finally {
+         rs.close();
+      }//end try
+
+      PreparedStatement stmt = pc.prepare(Queries.INSERT_ORDER_BATCH.getSql());
+      try {
+         for (Order order : written) {
+            PizzaStore.bind(stmt, new Object[] { order.getOrderID(), order.getLogin(), order.getStoreID(),
+                                                 Columns.toDecimal(order.getTotalCents()) });
+            stmt.addBatch();
+            order.setOrderTimestamp(now);
+         }//end for
+         stmt.executeBatch();
+      } finally {
+         stmt.clearBatch();
+      }//end try
+      writeLines(pc, written, prices);
+      return written;
+   }//end writeAll
+
+   /*
+    * Reads and share locks the prices of every item of the orders, in cents
+    * by item name.  Items that are not on the menu are missing from the map.
+    **/
+   private static Map<String, Long> lockPrices(ConnectionPool.PooledConnection pc, List<Order> orders)
+         throws SQLException {
+      Set<String> names = new LinkedHashSet<String>();
+      for (Order order : orders)
+         names.addAll(order.getLines().keySet());
+      StringBuilder literal = new StringBuilder("{");
+      for (String name : names) {
+         if (literal.length() > 1)
+            literal.append(',');
+         // quoted array element: only quotes and backslashes need escaping
+         literal.append('"').append(name.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+      }//end for
+
+      Map<String, Long> prices = new HashMap<String, Long>(names.size() * 2);
+      PreparedStatement stmt = pc.prepare(Queries.ORDER_ITEM_PRICES.getSql());
+      stmt.setString(1, literal.append('}').toString());
+      ResultSet rs = stmt.executeQuery();
+      try {
+         while (rs.next())
+            prices.put(rs.getString(1), Columns.getCents(rs, 2));
+      } finally {
+         rs.close();
+      }//end try
+      return prices;
+   }//end lockPrices
+
+   /*
+    * Drops the items that are not on the menu and prices the rest.
+    * Returns the total in cents, or -1 when no item is left.
+    **/
+   private static long price(Order order, Map<String, Long> prices) {
+      List<String> missing = new ArrayList<String>();
+      for (String itemName : order.getLines().keySet())
+         if (!prices.containsKey(itemName))
+            missing.add(itemName);
+      for (String itemName : missing)
+         order.reject(itemName);
+      if (order.isEmpty())
+         return -1;
+
+      long totalCents = 0;
+      for (Map.Entry<String, Integer> line : order.getLines().entrySet())
+         totalCents += prices.get(line.getKey()) * line.getValue();
+      return totalCents;
+   }//end price
+
+   /*
+    * Each line keeps the price the total was computed from, so the total
+    * always equals the sum of the lines.
+    **/
+   private static void writeLines(ConnectionPool.PooledConnection pc, List<Order> orders, Map<String, Long> prices)
+         throws SQLException {
+      PreparedStatement stmt = pc.prepare(Queries.INSERT_ORDER_ITEM.getSql());
+      try {
+         for (Order order : orders) {
+            for (Map.Entry<String, Integer> line : order.getLines().entrySet()) {
+               stmt.setInt(1, order.getOrderID());
+               stmt.setString(2, line.getKey());
+               stmt.setInt(3, line.getValue());
+               stmt.setBigDecimal(4, Columns.toDecimal(prices.get(line.getKey())));
+               stmt.addBatch();
+            }//end for
+         }//end for
+         stmt.executeBatch();
+      } finally {
+         // the statement is cached; never leave a half-built batch behind
+         stmt.clearBatch();
+      }//end try
+   }//end writeLines
+
+}//end OrderWriter
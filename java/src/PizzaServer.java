@@ -0,0 +1,595 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves PizzaService over HTTP with JSON responses, so one node serves
+ * many concurrent users instead of the single user at the console.
+ * Requests are handled one per virtual thread where the JVM has them (Java
+ * 21 and later), otherwise on a bounded thread pool.  Either way the
+ * connection pool bounds how many requests reach the database at once.
+ *
+ * Parameters are read from the query string and from form encoded request
+ * bodies of at most the body limit.  POST /login answers a session token
+ * that the other endpoints expect in an "Authorization: Bearer" header;
+ * login, menu, stores and sign up need none.  A token expires after it
+ * has gone unused for the session idle time, and when more sessions are
+ * open than the session limit the least recently used one is dropped.
+ *
+ *   POST /login                 login, password
+ *   POST /logout
+ *   POST /users                 login, password, [phoneNum] [favoriteItems] [role] (other
+ *                               roles than customer need a manager's token)
+ *   POST /users/update          login, field, value (managers)
+ *   GET  /profile
+ *   POST /profile               [favoriteItems] [phoneNum] [password]
+ *   GET  /menu                  [type] [maxPrice] [sort=asc|desc] [q]
+ *   POST /menu                  itemName, typeOfItem, price, [ingredients] [description] (managers)
+ *   POST /menu/update           oldName, then the fields of POST /menu (managers)
+ *   GET  /stores                [state] [city] [open=true] [top]
+ *   POST /orders                storeID, items=name:quantity;name:quantity
+ *   GET  /orders                [after] (the cursor of the previous page)
+ *   GET  /orders/recent
+ *   GET  /orders/{id}
+ *   POST /orders/{id}/status    status, [version] (409 when the order cannot move)
+ *   POST /orders/status         status, orders=id[:version];id[:version]
+ *
+ */
+public class PizzaServer {
+
+   // threads serving requests when virtual threads are not available
+   private static final int THREADS = Integer.getInteger("pizzastore.http.threads", 200);
+
+   // connections the listener queues before refusing
+   private static final int BACKLOG = Integer.getInteger("pizzastore.http.backlog", 1024);
+
+   // how long a session token stays valid without being used
+   private static final long SESSION_IDLE_MS = Long.getLong("pizzastore.http.sessionIdleMillis", 1800000L);
+
+   // most sessions open at once
+   private static final int MAX_SESSIONS = Integer.getInteger("pizzastore.http.maxSessions", 100000);
+
+   // largest request body read, in bytes
+   private static final int MAX_BODY = Integer.getInteger("pizzastore.http.maxBodyBytes", 64 * 1024);
+
+   // a status code and message for the client
+   private static final class HttpError extends Exception {
+      private static final long serialVersionUID = 1L;
+
+      final int status;
+
+      HttpError(int status, String message) {
+         super(message);
+         this.status = status;
+      }
+   }//end HttpError
+
+   // what a request is routed to; the session is null for the open endpoints
+   private interface Endpoint {
+      String serve(Session session, Map<String, String> params) throws HttpError, SQLException;
+   }//end Endpoint
+
+   // a logged in session and when its token was last used
+   private static final class Token {
+      final Session session;
+      long lastUsed;
+
+      Token(Session session, long lastUsed) {
+         this.session = session;
+         this.lastUsed = lastUsed;
+      }
+   }//end Token
+
+   private final PizzaService _service;
+   private final HttpServer _server;
+   private final ExecutorService _executor;
+   // access ordered, so the eldest entry is the least recently used session
+   private final LinkedHashMap<String, Token> _sessions = new LinkedHashMap<String, Token>(16, 0.75f, true) {
+      protected boolean removeEldestEntry(Map.Entry<String, Token> eldest) {
+         return size() > MAX_SESSIONS;
+      }
+   };
+   private final SecureRandom _random = new SecureRandom();
+
+   /**
+    * @param esql the store to serve
+    * @param port the local port to listen on
+    * @throws java.io.IOException when the port cannot be bound
+    */
+   public PizzaServer(PizzaStore esql, int port) throws IOException {
+      this._service = esql.getService();
+      this._executor = newExecutor();
+      this._server = HttpServer.create(new InetSocketAddress("localhost", port), BACKLOG);
+      this._server.setExecutor(this._executor);
+      this._server.createContext("/", this::handle);
+   }//end PizzaServer
+
+   /*
+    * One virtual thread per request where available, found by reflection so
+    * the program still builds and runs on older JVMs.
+    **/
+   private static ExecutorService newExecutor() {
+      try {
+         return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      } catch (ReflectiveOperationException e) {
+         return Executors.newFixedThreadPool(THREADS);
+      }//end try
+   }//end newExecutor
+
+   public void start() {
+      this._server.start();
+   }//end start
+
+   public void stop() {
+      this._server.stop(1);
+      this._executor.shutdown();
+   }//end stop
+
+   private void handle(HttpExchange exchange) throws IOException {
+      int status = 200;
+      String body;
+      try {
+         body = route(exchange);
+      } catch (HttpError e) {
+         status = e.status;
+         body = error(e.getMessage());
+      } catch (IllegalArgumentException e) {
+         // includes NumberFormatException from malformed ids and amounts
+         status = 400;
+         body = error(e.getMessage());
+      } catch (SecurityException e) {
+         status = 403;
+         body = error(e.getMessage());
+      } catch (RejectedExecutionException e) {
+         // the order intake is full; the client should back off and retry
+         status = 503;
+         body = error(e.getMessage());
+      } catch (SQLException | RuntimeException e) {
+         status = 500;
+         body = error(e.getMessage());
+      }//end try
+      byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+      exchange.sendResponseHeaders(status, bytes.length);
+      OutputStream out = exchange.getResponseBody();
+      try {
+         out.write(bytes);
+      } finally {
+         out.close();
+      }//end try
+   }//end handle
+
+   /*
+    * Finds the endpoint first, so an unknown path is a 404 whether or not
+    * the client is logged in, then checks the session of those that need
+    * one before the body is read.
+    **/
+   private String route(HttpExchange exchange) throws HttpError, SQLException, IOException {
+      String method = exchange.getRequestMethod();
+      String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/");
+      Session session = null;
+      Endpoint endpoint = open(exchange, method, path);
+      if (endpoint == null) {
+         endpoint = secured(exchange, method, path);
+         if (endpoint == null)
+            throw new HttpError(404, "No such endpoint: " + method + " " + exchange.getRequestURI().getPath());
+         session = session(exchange);
+      }//end if
+      return endpoint.serve(session, params(exchange));
+   }//end route
+
+   // the endpoints served without a session
+   private Endpoint open(final HttpExchange exchange, String method, String[] path) {
+      String resource = path[0];
+      if (path.length == 1 && resource.equals("login") && method.equals("POST"))
+         return (session, params) -> logIn(params);
+      if (path.length == 1 && resource.equals("menu") && method.equals("GET"))
+         return (session, params) -> menu(params);
+      if (path.length == 1 && resource.equals("stores") && method.equals("GET"))
+         return (session, params) -> stores(params);
+      if (path.length == 1 && resource.equals("users") && method.equals("POST"))
+         // a sign up, or a manager creating an account when a token is given
+         return (session, params) -> createUser(token(exchange) == null ? null : session(exchange), params);
+      return null;
+   }//end open
+
+   // the endpoints that need a session
+   private Endpoint secured(final HttpExchange exchange, String method, final String[] path) {
+      String resource = path[0];
+      if (path.length == 1 && resource.equals("logout") && method.equals("POST"))
+         return (session, params) -> {
+            String token = token(exchange);
+            synchronized (this._sessions) {
+               this._sessions.remove(token);
+            }//end synchronized
+            return "{}";
+         };
+      if (path.length == 1 && resource.equals("profile") && method.equals("GET"))
+         return (session, params) -> profile(this._service.getProfile(session));
+      if (path.length == 1 && resource.equals("profile") && method.equals("POST"))
+         return (session, params) -> {
+            this._service.updateProfile(session, params.get("favoriteItems"), params.get("phoneNum"),
+                                        params.get("password"));
+            return profile(session);
+         };
+      if (path.length == 1 && resource.equals("menu") && method.equals("POST"))
+         return (session, params) -> {
+            MenuItem item = menuItem(params);
+            this._service.addMenuItem(session, item);
+            return item(new StringBuilder(128), item).toString();
+         };
+      if (path.length == 2 && resource.equals("menu") && path[1].equals("update") && method.equals("POST"))
+         return (session, params) -> {
+            MenuItem item = menuItem(params);
+            if (!this._service.updateMenuItem(session, required(params, "oldName"), item))
+               throw new HttpError(404, "Item not found");
+            return item(new StringBuilder(128), item).toString();
+         };
+      if (path.length == 2 && resource.equals("users") && path[1].equals("update") && method.equals("POST"))
+         return (session, params) -> {
+            if (!this._service.updateUser(session, required(params, "login"),
+                                          PizzaService.UserField.parse(required(params, "field")),
+                                          params.get("value")))
+               throw new HttpError(404, "User not found");
+            return "{}";
+         };
+      if (!resource.equals("orders"))
+         return null;
+      if (path.length == 1 && method.equals("POST"))
+         return this::placeOrder;
+      if (path.length == 1 && method.equals("GET"))
+         return this::history;
+      if (path.length == 2 && path[1].equals("recent") && method.equals("GET"))
+         return (session, params) -> summaries(this._service.recentOrders(session), null);
+      if (path.length == 2 && method.equals("GET"))
+         return (session, params) -> detail(session, Integer.parseInt(path[1]));
+      if (path.length == 2 && path[1].equals("status") && method.equals("POST"))
+         return this::updateStatus;
+      if (path.length == 3 && path[2].equals("status") && method.equals("POST"))
+         return (session, params) -> {
+            Integer version = params.containsKey("version") ? Integer.valueOf(params.get("version")) : null;
+            List<OrderSummary> moved = this._service.updateOrderStatus(session,
+               Collections.singletonMap(Integer.valueOf(path[1]), version), required(params, "status"));
+            if (moved.isEmpty())
+               throw new HttpError(409, "Order not found, changed meanwhile, or cannot move to that status");
+            return summary(new StringBuilder(160), moved.get(0)).toString();
+         };
+      return null;
+   }//end secured
+
+   private String logIn(Map<String, String> params) throws HttpError, SQLException {
+      Session session = this._service.logIn(required(params, "login"), required(params, "password"));
+      if (session == null)
+         throw new HttpError(401, "Invalid credentials");
+      byte[] bytes = new byte[24];
+      this._random.nextBytes(bytes);
+      StringBuilder token = new StringBuilder(48);
+      for (byte b : bytes)
+         token.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      long now = System.currentTimeMillis();
+      synchronized (this._sessions) {
+         // the eldest sessions are the idlest, so expired ones are all at the front
+         Iterator<Token> idlest = this._sessions.values().iterator();
+         while (idlest.hasNext() && now - idlest.next().lastUsed > SESSION_IDLE_MS)
+            idlest.remove();
+         this._sessions.put(token.toString(), new Token(session, now));
+      }//end synchronized
+      StringBuilder sb = new StringBuilder("{\"token\":");
+      string(sb, token.toString()).append(",\"login\":");
+      string(sb, session.getLogin()).append(",\"role\":");
+      return string(sb, session.getRole().trim()).append('}').toString();
+   }//end logIn
+
+   private String menu(Map<String, String> params) throws SQLException {
+      MenuCache.Menu menu = this._service.getMenu();
+      List<MenuItem> items;
+      if (params.containsKey("q"))
+         items = this._service.searchMenu(params.get("q"), PizzaStore.SEARCH_LIMIT);
+      else if (params.containsKey("type"))
+         items = menu.byType(params.get("type"));
+      else if (params.containsKey("maxPrice"))
+         items = menu.atMost(new BigDecimal(params.get("maxPrice")).movePointRight(2).longValue());
+      else if (params.containsKey("sort"))
+         items = menu.byPrice(!"desc".equalsIgnoreCase(params.get("sort")));
+      else
+         items = menu.getItems();
+      StringBuilder sb = new StringBuilder(items.size() * 128).append('[');
+      for (int i = 0; i < items.size(); ++i)
+         item(i > 0 ? sb.append(',') : sb, items.get(i));
+      return sb.append(']').toString();
+   }//end menu
+
+   private String createUser(Session creator, Map<String, String> params) throws HttpError, SQLException {
+      String role = params.containsKey("role") ? params.get("role") : "customer";
+      String login = required(params, "login");
+      this._service.createUser(creator, login, required(params, "password"), role,
+                               params.containsKey("favoriteItems") ? params.get("favoriteItems") : "",
+                               params.containsKey("phoneNum") ? params.get("phoneNum") : "");
+      StringBuilder sb = new StringBuilder("{\"login\":");
+      string(sb, login).append(",\"role\":");
+      return string(sb, role.trim().toLowerCase(Locale.ROOT)).append('}').toString();
+   }//end createUser
+
+   private static String profile(Session session) {
+      StringBuilder sb = new StringBuilder("{\"login\":");
+      string(sb, session.getLogin()).append(",\"role\":");
+      string(sb, session.getRole().trim()).append(",\"favoriteItems\":");
+      string(sb, session.getFavoriteItems()).append(",\"phoneNum\":");
+      return string(sb, session.getPhoneNum()).append('}').toString();
+   }//end profile
+
+   // the item of a POST /menu or /menu/update; the service checks the fields
+   private static MenuItem menuItem(Map<String, String> params) throws HttpError {
+      long priceCents = new BigDecimal(required(params, "price")).movePointRight(2).longValue();
+      return new MenuItem(required(params, "itemName"),
+                          params.containsKey("ingredients") ? params.get("ingredients") : "",
+                          required(params, "typeOfItem"), priceCents, params.get("description"));
+   }//end menuItem
+
+   private String stores(Map<String, String> params) throws SQLException {
+      StoreDirectory.Directory directory = this._service.getStores();
+      boolean openOnly = "true".equalsIgnoreCase(params.get("open"));
+      List<Store> stores = params.containsKey("top")
+         ? directory.top(Integer.parseInt(params.get("top")), params.get("state"), openOnly)
+         : directory.find(params.get("state"), params.get("city"), openOnly);
+      StringBuilder sb = new StringBuilder(stores.size() * 96).append('[');
+      for (int i = 0; i < stores.size(); ++i) {
+         Store store = stores.get(i);
+         sb.append(i > 0 ? ",{\"storeID\":" : "{\"storeID\":").append(store.getStoreID()).append(",\"address\":");
+         string(sb, store.getAddress()).append(",\"city\":");
+         string(sb, store.getCity()).append(",\"state\":");
+         string(sb, store.getState()).append(",\"isOpen\":").append(store.isOpen()).append(",\"reviewScore\":")
+            .append(Double.isNaN(store.getReviewScore()) ? "null" : Double.toString(store.getReviewScore()))
+            .append('}');
+      }//end for
+      return sb.append(']').toString();
+   }//end stores
+
+   private String placeOrder(Session session, Map<String, String> params) throws HttpError, SQLException {
+      int storeID = Integer.parseInt(required(params, "storeID"));
+      Map<String, Integer> items = new LinkedHashMap<String, Integer>();
+      for (String line : required(params, "items").split(";")) {
+         int colon = line.lastIndexOf(':');
+         String name = (colon < 0 ? line : line.substring(0, colon)).trim();
+         int quantity = colon < 0 ? 1 : Integer.parseInt(line.substring(colon + 1).trim());
+         if (!name.isEmpty())
+            items.merge(name, quantity, Integer::sum);
+      }//end for
+      Order order = this._service.placeOrder(session, storeID, items);
+      StringBuilder sb = new StringBuilder("{\"orderID\":");
+      if (order.getOrderID() == 0)
+         sb.append("null");
+      else
+         sb.append(order.getOrderID()).append(",\"totalPrice\":").append(Columns.formatCents(order.getTotalCents()));
+      sb.append(",\"rejectedItems\":[");
+      List<String> rejected = order.getRejectedItems();
+      for (int i = 0; i < rejected.size(); ++i)
+         string(i > 0 ? sb.append(',') : sb, rejected.get(i));
+      return sb.append("]}").toString();
+   }//end placeOrder
+
+   private String updateStatus(Session session, Map<String, String> params) throws HttpError, SQLException {
+      Map<Integer, Integer> orders = new LinkedHashMap<Integer, Integer>();
+      for (String order : required(params, "orders").split(";")) {
+         int colon = order.indexOf(':');
+         String orderID = (colon < 0 ? order : order.substring(0, colon)).trim();
+         if (!orderID.isEmpty())
+            orders.put(Integer.valueOf(orderID), colon < 0 ? null : Integer.valueOf(order.substring(colon + 1).trim()));
+      }//end for
+      // the orders missing from the answer did not move
+      return summaries(this._service.updateOrderStatus(session, orders, required(params, "status")), null);
+   }//end updateStatus
+
+   private String history(Session session, Map<String, String> params) throws SQLException {
+      OrderHistory.Cursor after = params.containsKey("after") ? OrderHistory.Cursor.decode(params.get("after")) : null;
+      OrderHistory.Page page = this._service.orderHistory(session, after, PizzaStore.HISTORY_PAGE_SIZE);
+      return summaries(page.getOrders(), page.getNext());
+   }//end history
+
+   private String detail(Session session, int orderID) throws HttpError, SQLException {
+      OrderDetail detail = this._service.orderDetail(session, orderID);
+      if (detail == null)
+         throw new HttpError(404, "Order not found");
+      StringBuilder sb = new StringBuilder(256);
+      summary(sb, detail.getSummary());
+      sb.setLength(sb.length() - 1);
+      sb.append(",\"items\":[");
+      List<OrderDetail.Line> lines = detail.getLines();
+      for (int i = 0; i < lines.size(); ++i) {
+         OrderDetail.Line line = lines.get(i);
+         sb.append(i > 0 ? ",{\"itemName\":" : "{\"itemName\":");
+         string(sb, line.getItemName()).append(",\"quantity\":").append(line.getQuantity())
+            .append(",\"price\":").append(Columns.formatCents(line.getPriceCents())).append('}');
+      }//end for
+      return sb.append("]}").toString();
+   }//end detail
+
+   private static StringBuilder item(StringBuilder sb, MenuItem item) {
+      sb.append("{\"itemName\":");
+      string(sb, item.getItemName()).append(",\"ingredients\":");
+      string(sb, item.getIngredients()).append(",\"typeOfItem\":");
+      string(sb, item.getTypeOfItem().trim()).append(",\"price\":")
+         .append(Columns.formatCents(item.getPriceCents())).append(",\"description\":");
+      return string(sb, item.getDescription()).append('}');
+   }//end item
+
+   private static String summaries(List<OrderSummary> orders, OrderHistory.Cursor next) {
+      StringBuilder sb = new StringBuilder(orders.size() * 128 + 64).append("{\"orders\":[");
+      for (int i = 0; i < orders.size(); ++i)
+         summary(i > 0 ? sb.append(',') : sb, orders.get(i));
+      sb.append("],\"next\":");
+      if (next == null)
+         sb.append("null");
+      else
+         string(sb, next.encode());
+      return sb.append('}').toString();
+   }//end summaries
+
+   private static StringBuilder summary(StringBuilder sb, OrderSummary order) {
+      sb.append("{\"orderID\":").append(order.getOrderID()).append(",\"login\":");
+      string(sb, order.getLogin()).append(",\"storeID\":").append(order.getStoreID())
+         .append(",\"totalPrice\":").append(Columns.formatCents(order.getTotalCents())).append(",\"orderTimestamp\":");
+      string(sb, String.valueOf(order.getOrderTimestamp())).append(",\"orderStatus\":");
+      return string(sb, order.getOrderStatus()).append(",\"version\":").append(order.getVersion()).append('}');
+   }//end summary
+
+   private Session session(HttpExchange exchange) throws HttpError {
+      String token = token(exchange);
+      if (token == null)
+         throw new HttpError(401, "Log in first");
+      long now = System.currentTimeMillis();
+      synchronized (this._sessions) {
+         Token t = this._sessions.get(token);
+         if (t == null || now - t.lastUsed > SESSION_IDLE_MS) {
+            this._sessions.remove(token);
+            throw new HttpError(401, "Log in first");
+         }//end if
+         t.lastUsed = now;
+         return t.session;
+      }//end synchronized
+   }//end session
+
+   private static String token(HttpExchange exchange) {
+      String header = exchange.getRequestHeaders().getFirst("Authorization");
+      return header != null && header.startsWith("Bearer ") ? header.substring(7).trim() : null;
+   }//end token
+
+   private static String required(Map<String, String> params, String name) throws HttpError {
+      String value = params.get(name);
+      if (value == null || value.isEmpty())
+         throw new HttpError(400, "Missing parameter: " + name);
+      return value;
+   }//end required
+
+   /*
+    * The query string parameters, and those of a form encoded body.  A body
+    * over MAX_BODY bytes is refused with 413 once that many have been read,
+    * whatever its Content-Length claims.
+    **/
+   private static Map<String, String> params(HttpExchange exchange) throws HttpError, IOException {
+      Map<String, String> params = new HashMap<String, String>();
+      parse(exchange.getRequestURI().getRawQuery(), params);
+      InputStream in = exchange.getRequestBody();
+      try {
+         byte[] body = new byte[Math.min(MAX_BODY + 1, 8192)];
+         int length = 0;
+         for (int n; (n = in.read(body, length, body.length - length)) > 0; ) {
+            length += n;
+            if (length > MAX_BODY)
+               throw new HttpError(413, "Request body over " + MAX_BODY + " bytes");
+            if (length == body.length)
+               body = Arrays.copyOf(body, Math.min(MAX_BODY + 1, body.length * 2));
+         }//end for
+         if (length > 0)
+            parse(new String(body, 0, length, StandardCharsets.UTF_8), params);
+      } finally {
+         in.close();
+      }//end try
+      return params;
+   }//end params
+
+   private static void parse(String encoded, Map<String, String> params) throws UnsupportedEncodingException {
+      if (encoded == null || encoded.isEmpty())
+         return;
+      for (String pair : encoded.split("&")) {
+         int eq = pair.indexOf('=');
+         String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), "UTF-8");
+         String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), "UTF-8");
+         params.put(name, value);
+      }//end for
+   }//end parse
+
+   private static String error(String message) {
+      return string(new StringBuilder("{\"error\":"), message).append('}').toString();
+   }//end error
+
+   /*
+    * Appends a JSON string literal, or null.
+    **/
+   private static StringBuilder string(StringBuilder sb, String value) {
+      if (value == null)
+         return sb.append("null");
+      sb.append('"');
+      for (int i = 0, n = value.length(); i < n; ++i) {
+         char c = value.charAt(i);
+         switch (c) {
+            case '"': sb.append("\\\""); break;
+            case '\\': sb.append("\\\\"); break;
+            case '\n': sb.append("\\n"); break;
+            case '\r': sb.append("\\r"); break;
+            case '\t': sb.append("\\t"); break;
+            default:
+               if (c < 0x20)
+                  sb.append(String.format("\\u%04x", (int) c));
+               else
+                  sb.append(c);
+         }//end switch
+      }//end for
+      return sb.append('"');
+   }//end string
+
+   /**
+    * Serves a database over HTTP until the process is stopped, sweeping
+    * stale orders in the background meanwhile.
+    *
+    * @param args dbname, port and user, followed by the HTTP port (default 8080)
+    */
+   public static void main(String[] args) {
+      if (args.length < 3) {
+         System.err.println("Usage: java [-classpath <classpath>] " + PizzaServer.class.getName()
+                            + " <dbname> <port> <user> [<http port>]");
+         return;
+      }//end if
+      try {
+         Class.forName("org.postgresql.Driver");
+         final PizzaStore esql = new PizzaStore(args[0], args[1], args[2], "");
+         int port = args.length > 3 ? Integer.parseInt(args[3]) : 8080;
+         final PizzaServer server = new PizzaServer(esql, port);
+         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            esql.cleanup();
+         }));
+         server.start();
+         // the one long running process sweeps stale orders for all of them
+         esql.startSweeper();
+         System.out.println("Serving on http://localhost:" + port + "/");
+      } catch (Exception e) {
+         System.err.println("Unable to start the server: " + e.getMessage());
+         System.exit(1);
+      }//end try
+   }//end main
+
+}//end PizzaServer
@@ -0,0 +1,393 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+/**
+ * The PizzaStore operations as plain requests and responses, without any
+ * console or network I/O.  The console menu and the HTTP server are both
+ * clients of this class; it is thread safe, so one instance serves every
+ * concurrent user of a node.
+ *
+ * Bad input is reported with IllegalArgumentException and operations the
+ * session's role may not perform with SecurityException.
+ *
+ */
+public class PizzaService {
+
+   // the roles a user may have, as stored in Users.role
+   private static final List<String> ROLES = Arrays.asList("customer", "driver", "manager");
+
+   /**
+    * The account fields a manager may change with updateUser().
+    */
+   public enum UserField {
+      ROLE(Queries.UPDATE_USER_ROLE),
+      PASSWORD(Queries.UPDATE_USER_PASSWORD),
+      PHONE_NUM(Queries.UPDATE_PHONE_NUM),
+      FAVORITE_ITEMS(Queries.UPDATE_FAVORITE_ITEMS),
+      LOGIN(Queries.UPDATE_USER_LOGIN);
+
+      private final Query _update;
+
+      UserField(Query update) {
+         this._update = update;
+      }
+
+      /**
+       * @param name a field as typed, e.g. "phoneNum" or "favorite_items"
+       * @return the field
+       * @throws IllegalArgumentException when there is no field by that name
+       */
+      public static UserField parse(String name) {
+         String key = name.trim().replace("_", "");
+         for (UserField field : values())
+            if (field.name().replace("_", "").equalsIgnoreCase(key))
+               return field;
+         throw new IllegalArgumentException("Unknown user field '" + name + "'");
+      }//end parse
+   }//end UserField
+
+   // how long placeOrder() waits for its batch to commit
+   private static final long PLACE_WAIT_MS = Long.getLong("pizzastore.intake.waitMillis", 30000L);
+
+   private final PizzaStore _esql;
+
+   /**
+    * @param esql the store the operations run against
+    */
+   public PizzaService(PizzaStore esql) {
+      this._esql = esql;
+   }//end PizzaService
+
+   /**
+    * @param login the user name
+    * @param password the password
+    * @return the session, or null when the credentials do not match
+    * @throws java.sql.SQLException when the user cannot be looked up
+    */
+   public Session logIn(String login, String password) throws SQLException {
+      return this._esql.queryForObject(Queries.LOGIN, Session.MAPPER, login, password);
+   }//end logIn
+
+   /**
+    * Creates an account.  Anyone may sign up as a customer; only a manager
+    * may create drivers and managers.
+    *
+    * @param creator the manager creating the account, or null for a sign up
+    * @param login the user name
+    * @param password the password
+    * @param role customer, driver or manager
+    * @param favoriteItems the user's favorite items, may be empty
+    * @param phoneNum the phone number, may be empty
+    * @throws java.sql.SQLException when the account cannot be written, e.g. the login is taken
+    */
+   public void createUser(Session creator, String login, String password, String role, String favoriteItems,
+                          String phoneNum) throws SQLException {
+      String normalized = role(role);
+      if (!normalized.equals("customer") && (creator == null || !creator.isManager()))
+         throw new SecurityException("Only managers can create " + normalized + " accounts");
+      this._esql.executeUpdate(Queries.INSERT_USER, nonBlank(login, "login"), nonBlank(password, "password"),
+                               normalized, favoriteItems, phoneNum);
+   }//end createUser
+
+   /**
+    * @param session the user
+    * @return the user's profile, as read at log in and kept current by the updates
+    */
+   public Session getProfile(Session session) {
+      return session;
+   }//end getProfile
+
+   /**
+    * Updates the session user's own profile in one transaction.  Fields
+    * passed as null are left unchanged.
+    *
+    * @param session the user
+    * @param favoriteItems the new favorite items, or null
+    * @param phoneNum the new phone number, or null
+    * @param password the new password, or null
+    * @throws java.sql.SQLException when the update failed
+    */
+   public void updateProfile(final Session session, final String favoriteItems, final String phoneNum,
+                             final String password) throws SQLException {
+      if (password != null)
+         nonBlank(password, "password");
+      this._esql.withTransaction(pc -> {
+         if (favoriteItems != null)
+            this._esql.executeUpdate(pc, Queries.UPDATE_FAVORITE_ITEMS, favoriteItems, session.getLogin());
+         if (phoneNum != null)
+            this._esql.executeUpdate(pc, Queries.UPDATE_PHONE_NUM, phoneNum, session.getLogin());
+         if (password != null)
+            this._esql.executeUpdate(pc, Queries.UPDATE_USER_PASSWORD, password, session.getLogin());
+         return null;
+      });
+      if (favoriteItems != null)
+         session.setFavoriteItems(favoriteItems);
+      if (phoneNum != null)
+         session.setPhoneNum(phoneNum);
+   }//end updateProfile
+
+   /**
+    * @return the current menu snapshot, with its filters and search
+    */
+   public MenuCache.Menu getMenu() {
+      return this._esql.getMenuCache().get();
+   }//end getMenu
+
+   /**
+    * @param text free text, e.g. "pepperoni"
+    * @param limit the most items returned
+    * @return the matching items, best match first
+    * @throws java.sql.SQLException when the search runs in the database and fails
+    */
+   public List<MenuItem> searchMenu(String text, int limit) throws SQLException {
+      return this._esql.searchMenu(text, limit);
+   }//end searchMenu
+
+   /**
+    * @return the current store directory
+    * @throws java.sql.SQLException when the directory has to be loaded and cannot be
+    */
+   public StoreDirectory.Directory getStores() throws SQLException {
+      return this._esql.getStores().get();
+   }//end getStores
+
+   /**
+    * @param storeID a store id
+    * @return true when the store exists
+    * @throws java.sql.SQLException when the store cannot be looked up
+    */
+   public boolean storeExists(int storeID) throws SQLException {
+      // the directory may predate a store added since; fall back to the table
+      return getStores().get(storeID) != null || this._esql.exists(Queries.STORE_BY_ID, storeID);
+   }//end storeExists
+
+   /**
+    * Places an order for the session's user.  Items that are not on the
+    * menu are left out and reported through Order.getRejectedItems().
+    *
+    * @param session the customer
+    * @param storeID the store the order is placed at
+    * @param items quantities by item name
+    * @return the order; getOrderID() is 0 when none of its items exist
+    * @throws java.sql.SQLException when the order could not be written, or
+    *         was not written within the wait time; it may still be committed
+    *         after that, so look it up before placing it again
+    * @throws java.util.concurrent.RejectedExecutionException when too many
+    *         orders are already waiting to be written
+    */
+   public Order placeOrder(Session session, int storeID, Map<String, Integer> items) throws SQLException {
+      if (!storeExists(storeID))
+         throw new IllegalArgumentException("Store not found: " + storeID);
+      Order order = new Order(session.getLogin(), storeID);
+      for (Map.Entry<String, Integer> item : items.entrySet()) {
+         if (item.getValue() <= 0)
+            throw new IllegalArgumentException("Quantity must be positive: " + item.getKey());
+         order.addItem(item.getKey(), item.getValue());
+      }//end for
+      if (order.isEmpty())
+         throw new IllegalArgumentException("No items in the order");
+      try {
+         return this._esql.getOrderIntake().submit(order).get(PLACE_WAIT_MS, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+         throw new SQLException("Timed out waiting for the order to be written");
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new SQLException("Interrupted while placing the order");
+      } catch (ExecutionException e) {
+         if (e.getCause() instanceof SQLException)
+            throw (SQLException) e.getCause();
+         if (e.getCause() instanceof RuntimeException)
+            throw (RuntimeException) e.getCause();
+         throw new SQLException("Could not place the order: " + e.getCause());
+      }//end try
+   }//end placeOrder
+
+   /**
+    * @param session the user
+    * @return the user's newest orders, newest first
+    * @throws java.sql.SQLException when the orders cannot be read
+    */
+   public List<OrderSummary> recentOrders(Session session) throws SQLException {
+      return this._esql.getRecentOrders().get(session.getLogin());
+   }//end recentOrders
+
+   /**
+    * Customers page through their own orders, staff through everyone's.
+    *
+    * @param session the user
+    * @param after the cursor of the previous page, null for the first page
+    * @param pageSize orders per page
+    * @return the page
+    * @throws java.sql.SQLException when the orders cannot be read
+    */
+   public OrderHistory.Page orderHistory(Session session, OrderHistory.Cursor after, int pageSize) throws SQLException {
+      OrderHistory history = new OrderHistory(this._esql);
+      return session.isCustomer() ? history.forUser(session.getLogin(), after, pageSize) : history.all(after, pageSize);
+   }//end orderHistory
+
+   /**
+    * Streams the rest of the history after a page in constant heap;
+    * customers see their own orders, staff everyone's.
+    *
+    * @param session the user
+    * @param after the cursor of the previous page, null to start at the newest order
+    * @param handler called for every order until it returns false
+    * @return the number of orders handed to the handler
+    * @throws java.sql.SQLException when the orders cannot be read
+    */
+   public long forEachOrder(Session session, OrderHistory.Cursor after, Predicate<OrderSummary> handler)
+         throws SQLException {
+      return new OrderHistory(this._esql).forEach(session.isCustomer() ? session.getLogin() : null, after, handler);
+   }//end forEachOrder
+
+   /**
+    * @param session the user; customers only see their own orders
+    * @param orderID the order
+    * @return the order with its items, or null when there is none the user may see
+    * @throws java.sql.SQLException when the order cannot be read
+    */
+   public OrderDetail orderDetail(Session session, int orderID) throws SQLException {
+      return this._esql.getOrderDetails().get(orderID, session.isCustomer() ? session.getLogin() : null);
+   }//end orderDetail
+
+   /**
+    * @param session a driver or manager
+    * @param orderID the order
+    * @param orderStatus the new status
+    * @return false when there is no such order or it cannot move to the new
+    *         status from its current one
+    * @throws java.sql.SQLException when the update failed
+    */
+   public boolean updateOrderStatus(Session session, int orderID, String orderStatus) throws SQLException {
+      return !updateOrderStatus(session, Collections.<Integer, Integer>singletonMap(orderID, null), orderStatus)
+         .isEmpty();
+   }//end updateOrderStatus
+
+   /**
+    * Moves several orders to a new status in one statement.  Orders that
+    * do not exist, cannot move to the new status from their current one, or
+    * whose version is no longer the expected one are left unchanged.
+    *
+    * @param session a driver or manager
+    * @param orders the orders, each with the version the caller read or null for any
+    * @param orderStatus the new status
+    * @return the orders that moved, with their new versions
+    * @throws java.sql.SQLException when the update failed
+    */
+   public List<OrderSummary> updateOrderStatus(Session session, Map<Integer, Integer> orders, String orderStatus)
+         throws SQLException {
+      if (!session.isManager() && !session.isDriver())
+         throw new SecurityException("Only managers or drivers can update order status");
+      OrderStatus status = OrderStatus.parse(orderStatus);
+      if (status == null)
+         throw new IllegalArgumentException("Unknown order status '" + orderStatus + "', expected one of: "
+                                            + OrderStatus.labels());
+      if (orders.size() > PizzaStore.STATUS_BATCH_LIMIT)
+         throw new IllegalArgumentException("At most " + PizzaStore.STATUS_BATCH_LIMIT + " orders at a time");
+      return this._esql.transitionOrders(orders, status);
+   }//end updateOrderStatus
+
+   /**
+    * Replaces a menu item, possibly renaming it.
+    *
+    * @param session a manager
+    * @param oldName the item's current name
+    * @param item the item as it should be
+    * @return false when there is no item by the old name
+    * @throws java.sql.SQLException when the update failed
+    */
+   public boolean updateMenuItem(Session session, String oldName, MenuItem item) throws SQLException {
+      requireManager(session, "update the menu");
+      return this._esql.getMenuCache().updateItem(oldName, menuItem(item));
+   }//end updateMenuItem
+
+   /**
+    * @param session a manager
+    * @param item the new item
+    * @throws java.sql.SQLException when the insert failed, e.g. the name is taken
+    */
+   public void addMenuItem(Session session, MenuItem item) throws SQLException {
+      requireManager(session, "update the menu");
+      this._esql.getMenuCache().addItem(menuItem(item));
+   }//end addMenuItem
+
+   /**
+    * Changes one field of any user's account.  A manager may not rename the
+    * account they are logged in with, since the session and the caches are
+    * keyed by it; another manager can.
+    *
+    * @param session a manager
+    * @param login the account to change
+    * @param field the field to change
+    * @param value the new value; roles are customer, driver or manager
+    * @return false when there is no such user
+    * @throws java.sql.SQLException when the update failed
+    */
+   public boolean updateUser(Session session, String login, UserField field, String value) throws SQLException {
+      requireManager(session, "update user information");
+      if (field == UserField.LOGIN && login.equals(session.getLogin()))
+         throw new IllegalArgumentException("You cannot rename the account you are logged in with");
+      if (field == UserField.ROLE)
+         value = role(value);
+      else if (field == UserField.LOGIN || field == UserField.PASSWORD)
+         nonBlank(value, field == UserField.LOGIN ? "login" : "password");
+      if (this._esql.executeUpdate(field._update, value, login) == 0)
+         return false;
+      if (login.equals(session.getLogin())) {
+         // keep this session in step when managers edit themselves
+         if (field == UserField.ROLE) session.setRole(value);
+         else if (field == UserField.PHONE_NUM) session.setPhoneNum(value);
+         else if (field == UserField.FAVORITE_ITEMS) session.setFavoriteItems(value);
+      }//end if
+      return true;
+   }//end updateUser
+
+   private static void requireManager(Session session, String action) {
+      if (!session.isManager())
+         throw new SecurityException("Only managers can " + action);
+   }//end requireManager
+
+   private static MenuItem menuItem(MenuItem item) {
+      nonBlank(item.getItemName(), "item name");
+      nonBlank(item.getTypeOfItem(), "type of item");
+      if (item.getPriceCents() < 0)
+         throw new IllegalArgumentException("Price must not be negative");
+      // types are stored lower cased and trimmed, as the type filters compare them
+      return new MenuItem(item.getItemName().trim(), item.getIngredients(),
+                          MenuCache.normalizeType(item.getTypeOfItem()), item.getPriceCents(), item.getDescription());
+   }//end menuItem
+
+   private static String role(String role) {
+      String normalized = role == null ? "" : role.trim().toLowerCase(Locale.ROOT);
+      if (!ROLES.contains(normalized))
+         throw new IllegalArgumentException("Unknown role '" + role + "', expected one of: customer, driver, manager");
+      return normalized;
+   }//end role
+
+   private static String nonBlank(String value, String what) {
+      if (value == null || value.trim().isEmpty())
+         throw new IllegalArgumentException("Missing " + what);
+      return value;
+   }//end nonBlank
+
+}//end PizzaService
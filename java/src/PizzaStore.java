@@ -10,9 +10,10 @@
  *
  */
 
-import java.sql.DriverManager;
 import java.sql.Connection;
 import java.sql.Statement;
+import java.sql.PreparedStatement;
+import java.sql.Types;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -22,6 +23,12 @@ import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.math.BigDecimal;
 import java.lang.Math;
 
 /**
@@ -31,8 +38,74 @@ import java.lang.Math;
  */
 public class PizzaStore {
 
-   // reference to physical database connection.
-   private Connection _connection = null;
+   // pool of physical database connections shared by every operation.
+   private ConnectionPool _pool = null;
+
+   // pool sizing, overridable with -Dpizzastore.pool.* system properties
+   private static final int POOL_MIN_SIZE = Integer.getInteger("pizzastore.pool.min", 1);
+   private static final int POOL_MAX_SIZE = Integer.getInteger("pizzastore.pool.max", 8);
+   private static final long POOL_BORROW_TIMEOUT_MS = Long.getLong("pizzastore.pool.borrowTimeoutMillis", 5000L);
+   private static final long POOL_MAX_IDLE_MS = Long.getLong("pizzastore.pool.maxIdleMillis", 60000L);
+
+   // hands out FoodOrder ids from blocks reserved on the order id sequence
+   private final OrderIdAllocator _orderIds = new OrderIdAllocator();
+
+   // in-memory copy of the Items table
+   private MenuCache _menuCache = null;
+
+   // how often the menu change channel is polled
+   private static final long MENU_POLL_MS = Long.getLong("pizzastore.menu.pollMillis", 500L);
+
+   // menu search runs on the itemsSearch index instead of in memory, for large catalogs
+   private static final boolean SEARCH_IN_DATABASE = Boolean.getBoolean("pizzastore.menu.searchInDatabase");
+
+   // most items a menu search returns
+   static final int SEARCH_LIMIT = Integer.getInteger("pizzastore.menu.searchLimit", 10);
+
+   // newest orders of recently active users
+   private final RecentOrdersCache _recentOrders = new RecentOrdersCache(this,
+      Integer.getInteger("pizzastore.recentOrders.maxUsers", 10000),
+      Long.getLong("pizzastore.recentOrders.ttlMillis", 60000L));
+
+   // orders in a final status, which no longer change
+   private final OrderDetailCache _orderDetails = new OrderDetailCache(this,
+      Integer.getInteger("pizzastore.orderDetails.capacity", 1000));
+
+   // the stores, indexed by state and city
+   private final StoreDirectory _stores = new StoreDirectory(this,
+      Long.getLong("pizzastore.stores.refreshMillis", 300000L));
+
+   // the operations, for the console and the HTTP server alike
+   private final PizzaService _service = new PizzaService(this);
+
+   // group commit for placed orders, started on first use
+   private OrderIntake _orderIntake;
+
+   // marks orders incomplete that stayed active too long, once startSweeper() is called; 0 turns it off
+   private static final long SWEEP_INTERVAL_MS = Long.getLong("pizzastore.sweep.intervalMillis", 900000L);
+   private StaleOrderSweeper _sweeper;
+
+   // failures of the menu listener, the sweeper and other background tasks
+   private final AtomicLong _backgroundFailures = new AtomicLong();
+
+   // false once the driver turned out not to support Statement.setFetchSize
+   private volatile boolean _cursorFetch = true;
+
+   // renders query results for the executeQueryAndPrintResult methods
+   private ResultPrinter _printer = ResultPrinter.defaults();
+
+   // rows fetched per round trip by cursor-based queries
+   // (drivers without Statement.setFetchSize read the whole result instead)
+   static final int FETCH_SIZE = Integer.getInteger("pizzastore.fetchSize", 256);
+
+   // orders shown per page of the order history
+   static final int HISTORY_PAGE_SIZE = Integer.getInteger("pizzastore.historyPageSize", 20);
+
+   // stores shown per page of the store directory
+   static final int STORE_PAGE_SIZE = Integer.getInteger("pizzastore.storePageSize", 25);
+
+   // most orders one status update may move
+   static final int STATUS_BATCH_LIMIT = Integer.getInteger("pizzastore.status.batchLimit", 100);
 
    // handling the keyboard inputs through a BufferedReader
    // This variable can be global for convenience.
@@ -56,8 +129,13 @@ public class PizzaStore {
          String url = "jdbc:postgresql://localhost:" + dbport + "/" + dbname;
          System.out.println ("Connection URL: " + url + "\n");
 
-         // obtain a physical connection
-         this._connection = DriverManager.getConnection(url, user, passwd);
+         // open the connection pool, which obtains the initial physical connections
+         this._pool = new ConnectionPool(url, user, passwd, POOL_MIN_SIZE, POOL_MAX_SIZE,
+                                         POOL_BORROW_TIMEOUT_MS, POOL_MAX_IDLE_MS);
+
+         // load the menu and follow changes made by other processes
+         this._menuCache = new MenuCache(this, MENU_POLL_MS);
+         this._menuCache.startListening();
          System.out.println("Done");
       }catch (Exception e){
          System.err.println("Error - Unable to Connect to Database: " + e.getMessage() );
@@ -66,6 +144,249 @@ public class PizzaStore {
       }//end catch
    }//end PizzaStore
 
+   /**
+    * Replaces the printer used by the executeQueryAndPrintResult methods.
+    *
+    * @param printer the printer to use
+    */
+   public void setPrinter(ResultPrinter printer) {
+      this._printer = printer;
+   }//end setPrinter
+
+   /**
+    * @return the allocator all orders placed through this instance draw ids from
+    */
+   public OrderIdAllocator getOrderIdAllocator() {
+      return this._orderIds;
+   }//end getOrderIdAllocator
+
+   /**
+    * Reports a failed run of a background task, which has nobody to throw
+    * to and tries again on its next run.
+    *
+    * @param task what failed, e.g. "Menu reload"
+    * @param e the failure
+    */
+   void backgroundFailed(String task, Exception e) {
+      this._backgroundFailures.incrementAndGet();
+      System.err.println(task + " failed: " + e.getMessage());
+   }//end backgroundFailed
+
+   /**
+    * @return the number of background task runs that failed
+    */
+   public long getBackgroundFailures() {
+      return this._backgroundFailures.get();
+   }//end getBackgroundFailures
+
+   /**
+    * @return the in-memory menu
+    */
+   public MenuCache getMenuCache() {
+      return this._menuCache;
+   }//end getMenuCache
+
+   /**
+    * Searches the menu by name, type, ingredients and description.  The
+    * in-memory index answers by default; with
+    * -Dpizzastore.menu.searchInDatabase=true the query runs against the
+    * itemsSearch text search index instead, with the query MenuSearch
+    * states for it, so both find the same items.
+    *
+    * @param text free text, e.g. "pepperoni"
+    * @param limit the most items returned
+    * @return the matching items, best match first
+    * @throws java.sql.SQLException when the database search fails
+    */
+   public List<MenuItem> searchMenu (String text, int limit) throws SQLException {
+      if (SEARCH_IN_DATABASE) {
+         String query = MenuSearch.toTsQuery(text);
+         if (query.isEmpty())
+            return new ArrayList<MenuItem>();
+         return queryForList(Queries.MENU_SEARCH, MenuItem.MAPPER, query, limit);
+      }//end if
+      return this._menuCache.get().search(text, limit);
+   }//end searchMenu
+
+   /**
+    * Moves orders to a new status in a single statement and updates the
+    * order caches.  An order moves only if its current status may become
+    * the new one and, when an expected version is given, if its version is
+    * still that one, so concurrent updates of the same order never
+    * overwrite each other.  Orders that do not qualify are left unchanged.
+    *
+    * @param expected the orders to move, each with the version the caller
+    *        read, or null to accept whatever version the order has
+    * @param orderStatus the new status
+    * @return the orders that moved, with their new versions
+    * @throws java.sql.SQLException when the update failed
+    */
+   public List<OrderSummary> transitionOrders (Map<Integer, Integer> expected, OrderStatus orderStatus)
+         throws SQLException {
+      if (expected.isEmpty())
+         return Collections.emptyList();
+      StringBuilder ids = new StringBuilder("{");
+      StringBuilder versions = new StringBuilder("{");
+      for (Map.Entry<Integer, Integer> order : expected.entrySet()) {
+         if (ids.length() > 1) {
+            ids.append(',');
+            versions.append(',');
+         }//end if
+         ids.append(order.getKey());
+         versions.append(order.getValue() == null ? "NULL" : order.getValue().toString());
+      }//end for
+      List<OrderSummary> moved = queryForList(Queries.TRANSITION_ORDERS, OrderSummary.MAPPER, orderStatus.getLabel(),
+                                              ids.append('}').toString(), versions.append('}').toString(),
+                                              orderStatus.getSourcesLiteral());
+      for (OrderSummary order : moved) {
+         this._recentOrders.statusChanged(order.getLogin(), order.getOrderID(), order.getOrderStatus(),
+                                          order.getVersion());
+         this._orderDetails.statusChanged(order.getOrderID());
+      }//end for
+      return moved;
+   }//end transitionOrders
+
+   /**
+    * @return the per-user cache of recent orders
+    */
+   public RecentOrdersCache getRecentOrders() {
+      return this._recentOrders;
+   }//end getRecentOrders
+
+   /**
+    * @return the cache of order details
+    */
+   public OrderDetailCache getOrderDetails() {
+      return this._orderDetails;
+   }//end getOrderDetails
+
+   /**
+    * @return the store directory
+    */
+   public StoreDirectory getStores() {
+      return this._stores;
+   }//end getStores
+
+   /**
+    * @return the operations of this store
+    */
+   public PizzaService getService() {
+      return this._service;
+   }//end getService
+
+   /**
+    * Starts sweeping stale orders in the background, unless the sweep
+    * interval is 0 or a sweeper is already running.  Only the long running
+    * server calls this, so the console, the loaders and the load generator
+    * do not each start a sweep of their own.
+    */
+   public synchronized void startSweeper() {
+      if (SWEEP_INTERVAL_MS <= 0 || this._sweeper != null)
+         return;
+      this._sweeper = new StaleOrderSweeper(this,
+         Integer.getInteger("pizzastore.sweep.maxAgeDays", 7),
+         Integer.getInteger("pizzastore.sweep.chunkSize", 500),
+         Integer.getInteger("pizzastore.sweep.rowsPerSecond", 5000),
+         SWEEP_INTERVAL_MS);
+      this._sweeper.start();
+   }//end startSweeper
+
+   /**
+    * @return the queue placed orders are committed through
+    */
+   public synchronized OrderIntake getOrderIntake() {
+      if (this._orderIntake == null)
+         this._orderIntake = new OrderIntake(this,
+            Integer.getInteger("pizzastore.intake.queueSize", 10000),
+            Integer.getInteger("pizzastore.intake.maxBatch", 64),
+            Long.getLong("pizzastore.intake.lingerMillis", 2L),
+            Long.getLong("pizzastore.intake.offerTimeoutMillis", 1000L),
+            Integer.getInteger("pizzastore.intake.writers", 2));
+      return this._orderIntake;
+   }//end getOrderIntake
+
+   /**
+    * @return the connection pool backing this instance
+    */
+   public ConnectionPool getPool() {
+      return this._pool;
+   }//end getPool
+
+   /**
+    * Work performed with a borrowed connection.
+    */
+   public interface ConnectionWork<T> {
+      T run(ConnectionPool.PooledConnection pc) throws SQLException;
+   }//end ConnectionWork
+
+   /**
+    * Borrows a connection from the pool, runs the given work with it and
+    * hands it back.  A connection that fails with a connection-level error
+    * is discarded by the pool instead of being reused.
+    *
+    * @param work the work to run
+    * @return whatever the work returns
+    * @throws java.sql.SQLException when the work fails
+    */
+   public <T> T withConnection(ConnectionWork<T> work) throws SQLException {
+      ConnectionPool.PooledConnection pc = this._pool.borrow();
+      try {
+         T result = work.run(pc);
+         this._pool.release(pc);
+         return result;
+      } catch (SQLException e) {
+         this._pool.release(pc, e);
+         throw e;
+      } catch (RuntimeException e) {
+         this._pool.release(pc);
+         throw e;
+      }//end try
+   }//end withConnection
+
+   /**
+    * Runs the given work in a single transaction on a borrowed connection.
+    * The transaction commits when the work returns and rolls back when it
+    * throws.
+    *
+    * @param work the work to run
+    * @return whatever the work returns
+    * @throws java.sql.SQLException when the work or the commit fails
+    */
+   public <T> T withTransaction(final ConnectionWork<T> work) throws SQLException {
+      return withConnection(pc -> {
+         Connection conn = pc.getConnection();
+         conn.setAutoCommit(false);
+         boolean committed = false;
+         try {
+            T result = work.run(pc);
+            conn.commit();
+            committed = true;
+            return result;
+         } finally {
+            if (!committed)
+               conn.rollback();
+            conn.setAutoCommit(true);
+         }//end try
+      });
+   }//end withTransaction
+
+   /**
+    * Binds positional parameters to a prepared statement.  Nulls are sent
+    * untyped so the server infers the column type.
+    *
+    * @param stmt the statement to bind
+    * @param params the parameter values in placeholder order
+    * @throws java.sql.SQLException when a value cannot be bound
+    */
+   static void bind(PreparedStatement stmt, Object[] params) throws SQLException {
+      for (int i = 0; i < params.length; ++i) {
+         if (params[i] == null)
+            stmt.setNull(i + 1, Types.OTHER);
+         else
+            stmt.setObject(i + 1, params[i]);
+      }//end for
+   }//end bind
+
    /**
     * Method to execute an update SQL statement.  Update SQL instructions
     * includes CREATE, INSERT, UPDATE, DELETE, and DROP.
@@ -73,15 +394,55 @@ public class PizzaStore {
     * @param sql the input SQL string
     * @throws java.sql.SQLException when update failed
     */
-   public void executeUpdate (String sql) throws SQLException {
-      // creates a statement object
-      Statement stmt = this._connection.createStatement ();
+   public void executeUpdate (final String sql) throws SQLException {
+      withConnection(pc -> {
+         // creates a statement object
+         Statement stmt = pc.getConnection().createStatement ();
+         try {
+            // issues the update instruction
+            return stmt.executeUpdate (sql);
+         } finally {
+            // close the instruction
+            stmt.close ();
+         }//end try
+      });
+   }//end executeUpdate
 
-      // issues the update instruction
-      stmt.executeUpdate (sql);
+   /**
+    * Method to execute a parameterized update statement through the
+    * statement cache of the borrowed connection.
+    *
+    * @param query the statement to run
+    * @param params the parameter values in placeholder order
+    * @return the number of rows affected
+    * @throws java.sql.SQLException when update failed
+    */
+   public int executeUpdate (final Query query, final Object... params) throws SQLException {
+      return withConnection(pc -> {
+         PreparedStatement stmt = pc.prepare(query.getSql());
+         bind(stmt, params);
+         return stmt.executeUpdate();
+      });
+   }//end executeUpdate
 
-      // close the instruction
-      stmt.close ();
+   /**
+    * Method to execute a parameterized statement on a connection the caller
+    * already holds, e.g. inside withTransaction().
+    *
+    * @param pc the borrowed connection
+    * @param query the statement to run
+    * @param params the parameter values in placeholder order
+    * @return the number of rows affected, or 0 for statements returning rows
+    * @throws java.sql.SQLException when the statement failed
+    */
+   public int executeUpdate (ConnectionPool.PooledConnection pc, Query query, Object... params) throws SQLException {
+      PreparedStatement stmt = pc.prepare(query.getSql());
+      bind(stmt, params);
+      if (stmt.execute()) {
+         stmt.getResultSet().close();
+         return 0;
+      }//end if
+      return stmt.getUpdateCount();
    }//end executeUpdate
 
    /**
@@ -93,39 +454,46 @@ public class PizzaStore {
     * @return the number of rows returned
     * @throws java.sql.SQLException when failed to execute the query
     */
-   public int executeQueryAndPrintResult (String query) throws SQLException {
-      // creates a statement object
-      Statement stmt = this._connection.createStatement ();
-
-      // issues the query instruction
-      ResultSet rs = stmt.executeQuery (query);
+   public int executeQueryAndPrintResult (final String query) throws SQLException {
+      return withConnection(pc -> {
+         // creates a statement object
+         Statement stmt = pc.getConnection().createStatement ();
+         try {
+            // issues the query instruction
+            return this._printer.print(stmt.executeQuery (query));
+         } finally {
+            stmt.close();
+         }//end try
+      });
+   }//end executeQueryAndPrintResult
 
-      /*
-       ** obtains the metadata object for the returned result set.  The metadata
-       ** contains row and column info.
-       */
-      ResultSetMetaData rsmd = rs.getMetaData ();
-      int numCol = rsmd.getColumnCount ();
-      int rowCount = 0;
+   /**
+    * Method to execute a parameterized query and output the results to
+    * standard out.  Where the JDBC driver supports a fetch size, rows are
+    * read through a cursor, so the listing never holds more than one fetch
+    * of rows in memory.  The pg73 driver in lib/ does not, and reads the
+    * whole result at once.
+    *
+    * @param query the query to run
+    * @param params the parameter values in placeholder order
+    * @return the number of rows returned
+    * @throws java.sql.SQLException when failed to execute the query
+    */
+   public int executeQueryAndPrintResult (final Query query, final Object... params) throws SQLException {
+      return withCursor(query, FETCH_SIZE, params, this._printer::print);
+   }//end executeQueryAndPrintResult
 
-      // iterates through the result set and output them to standard out.
-      boolean outputHeader = true;
-      while (rs.next()){
-		 if(outputHeader){
-			for(int i = 1; i <= numCol; i++){
-			System.out.print(rsmd.getColumnName(i) + "\t");
-			}
-			System.out.println();
-			outputHeader = false;
-		 }
-         for (int i=1; i<=numCol; ++i)
-            System.out.print (rs.getString (i) + "\t");
-         System.out.println ();
-         ++rowCount;
-      }//end while
-      stmt.close();
-      return rowCount;
-   }//end executeQuery
+   /**
+    * Method to output rows that are already in memory the same way query
+    * results are printed.
+    *
+    * @param header the column names
+    * @param rows the rows, each with one value per column
+    * @return the number of rows printed
+    */
+   public int printRows (String[] header, List<String[]> rows) {
+      return this._printer.print(header, rows);
+   }//end printRows
 
    /**
     * Method to execute an input query SQL instruction (i.e. SELECT).  This
@@ -136,33 +504,240 @@ public class PizzaStore {
     * @return the query result as a list of records
     * @throws java.sql.SQLException when failed to execute the query
     */
-   public List<List<String>> executeQueryAndReturnResult (String query) throws SQLException {
-      // creates a statement object
-      Statement stmt = this._connection.createStatement ();
+   public List<List<String>> executeQueryAndReturnResult (final String query) throws SQLException {
+      return withConnection(pc -> {
+         // creates a statement object
+         Statement stmt = pc.getConnection().createStatement ();
+         try {
+            // issues the query instruction
+            return collectResult(stmt.executeQuery (query));
+         } finally {
+            stmt.close ();
+         }//end try
+      });
+   }//end executeQueryAndReturnResult
 
-      // issues the query instruction
-      ResultSet rs = stmt.executeQuery (query);
+   /**
+    * Method to execute a parameterized query and return the results as a
+    * list of records.
+    *
+    * @param query the query to run
+    * @param params the parameter values in placeholder order
+    * @return the query result as a list of records
+    * @throws java.sql.SQLException when failed to execute the query
+    */
+   public List<List<String>> executeQueryAndReturnResult (final Query query, final Object... params) throws SQLException {
+      return withConnection(pc -> {
+         PreparedStatement stmt = pc.prepare(query.getSql());
+         bind(stmt, params);
+         ResultSet rs = stmt.executeQuery();
+         try {
+            return collectResult(rs);
+         } finally {
+            rs.close();
+         }//end try
+      });
+   }//end executeQueryAndReturnResult
 
+   /**
+    * Method to execute a parameterized query and hand its rows one at a time
+    * to a callback, so a result of any size is read in constant heap.  Where
+    * the JDBC driver supports a fetch size, the query runs as a cursor that
+    * returns fetchSize rows per round trip; the pg73 driver in lib/ does not,
+    * and reads the whole result at once.
+    *
+    * @param query the query to run
+    * @param fetchSize number of rows fetched per round trip
+    * @param handler called for every row until it returns false
+    * @param params the parameter values in placeholder order
+    * @return the number of rows handed to the callback
+    * @throws java.sql.SQLException when failed to execute the query
+    */
+   public long forEachRow (final Query query, final int fetchSize, final RowHandler handler, final Object... params) throws SQLException {
+      return withCursor(query, fetchSize, params, rs -> {
+         long rowCount = 0;
+         while (rs.next()) {
+            ++rowCount;
+            if (!handler.handle(rs))
+               break;
+         }//end while
+         return rowCount;
+      });
+   }//end forEachRow
+
+   /**
+    * Method to execute a parameterized query with the default fetch size and
+    * hand its rows one at a time to a callback.
+    *
+    * @param query the query to run
+    * @param handler called for every row until it returns false
+    * @param params the parameter values in placeholder order
+    * @return the number of rows handed to the callback
+    * @throws java.sql.SQLException when failed to execute the query
+    */
+   public long forEachRow (final Query query, final RowHandler handler, final Object... params) throws SQLException {
+      return forEachRow(query, FETCH_SIZE, handler, params);
+   }//end forEachRow
+
+   private static List<List<String>> collectResult (ResultSet rs) throws SQLException {
       /*
        ** obtains the metadata object for the returned result set.  The metadata
        ** contains row and column info.
        */
       ResultSetMetaData rsmd = rs.getMetaData ();
       int numCol = rsmd.getColumnCount ();
-      int rowCount = 0;
 
       // iterates through the result set and saves the data returned by the query.
-      boolean outputHeader = false;
       List<List<String>> result  = new ArrayList<List<String>>();
       while (rs.next()){
-        List<String> record = new ArrayList<String>();
-		for (int i=1; i<=numCol; ++i)
-			record.add(rs.getString (i));
-        result.add(record);
+         List<String> record = new ArrayList<String>(numCol);
+         for (int i=1; i<=numCol; ++i)
+            record.add(rs.getString (i));
+         result.add(record);
       }//end while
-      stmt.close ();
       return result;
-   }//end executeQueryAndReturnResult
+   }//end collectResult
+
+   /**
+    * Method to execute a parameterized query and decode every row with the
+    * given mapper.
+    *
+    * @param query the query to run
+    * @param mapper decodes one row into a typed value
+    * @param params the parameter values in placeholder order
+    * @return the decoded rows
+    * @throws java.sql.SQLException when failed to execute the query
+    */
+   public <T> List<T> queryForList (final Query query, final RowMapper<T> mapper, final Object... params) throws SQLException {
+      return withConnection(pc -> {
+         PreparedStatement stmt = pc.prepare(query.getSql());
+         bind(stmt, params);
+         ResultSet rs = stmt.executeQuery();
+         try {
+            List<T> result = new ArrayList<T>();
+            while (rs.next())
+               result.add(mapper.map(rs));
+            return result;
+         } finally {
+            rs.close();
+         }//end try
+      });
+   }//end queryForList
+
+   /**
+    * Method to execute a parameterized query and decode its first row.
+    *
+    * @param query the query to run
+    * @param mapper decodes one row into a typed value
+    * @param params the parameter values in placeholder order
+    * @return the decoded first row, or null when the query returns nothing
+    * @throws java.sql.SQLException when failed to execute the query
+    */
+   public <T> T queryForObject (final Query query, final RowMapper<T> mapper, final Object... params) throws SQLException {
+      return withConnection(pc -> {
+         PreparedStatement stmt = pc.prepare(query.getSql());
+         bind(stmt, params);
+         ResultSet rs = stmt.executeQuery();
+         try {
+            return rs.next() ? mapper.map(rs) : null;
+         } finally {
+            rs.close();
+         }//end try
+      });
+   }//end queryForObject
+
+   /**
+    * Method to execute a parameterized query and read the first column of
+    * its first row as a long, without boxing.
+    *
+    * @param query the query to run
+    * @param defaultValue returned when the query returns no row or a null
+    * @param params the parameter values in placeholder order
+    * @return the value of the first column
+    * @throws java.sql.SQLException when failed to execute the query
+    */
+   public long scalar (final Query query, final long defaultValue, final Object... params) throws SQLException {
+      return scalar(query.getSql(), defaultValue, params);
+   }//end scalar
+
+   /**
+    * Method to check whether a parameterized query returns any row.  The
+    * check runs as SELECT EXISTS (...) so Postgres stops at the first match
+    * and only a single boolean comes back.
+    *
+    * @param query the query to test
+    * @param params the parameter values in placeholder order
+    * @return true if the query has at least one row
+    * @throws java.sql.SQLException when failed to execute the query
+    */
+   public boolean exists (final Query query, final Object... params) throws SQLException {
+      return scalar(query.getExistsSql(), 0, params) != 0;
+   }//end exists
+
+   /**
+    * Method to count the rows of a parameterized query on the server.  Only
+    * the count crosses the wire, not the rows.
+    *
+    * @param query the query whose rows are counted
+    * @param params the parameter values in placeholder order
+    * @return the number of rows the query returns
+    * @throws java.sql.SQLException when failed to execute the query
+    */
+   public long count (final Query query, final Object... params) throws SQLException {
+      return scalar(query.getCountSql(), 0, params);
+   }//end count
+
+   private long scalar (final String sql, final long defaultValue, final Object[] params) throws SQLException {
+      final long[] value = { defaultValue };
+      withConnection(pc -> {
+         PreparedStatement stmt = pc.prepare(sql);
+         bind(stmt, params);
+         ResultSet rs = stmt.executeQuery();
+         try {
+            if (rs.next()) {
+               // getLong would reject the boolean EXISTS column
+               Object v = rs.getObject(1);
+               if (v instanceof Boolean)
+                  value[0] = ((Boolean) v) ? 1 : 0;
+               else if (v != null)
+                  value[0] = ((Number) v).longValue();
+            }//end if
+            return null;
+         } finally {
+            rs.close();
+         }//end try
+      });
+      return value[0];
+   }//end scalar
+
+   /**
+    * Method to execute a parameterized query and collect the first column of
+    * every row into a primitive int array.
+    *
+    * @param query the query to run
+    * @param params the parameter values in placeholder order
+    * @return the values in row order
+    * @throws java.sql.SQLException when failed to execute the query
+    */
+   public int[] queryForIntArray (final Query query, final Object... params) throws SQLException {
+      return withConnection(pc -> {
+         PreparedStatement stmt = pc.prepare(query.getSql());
+         bind(stmt, params);
+         ResultSet rs = stmt.executeQuery();
+         try {
+            int[] values = new int[16];
+            int n = 0;
+            while (rs.next()) {
+               if (n == values.length)
+                  values = Arrays.copyOf(values, n * 2);
+               values[n++] = rs.getInt(1);
+            }//end while
+            return Arrays.copyOf(values, n);
+         } finally {
+            rs.close();
+         }//end try
+      });
+   }//end queryForIntArray
 
    /**
     * Method to execute an input query SQL instruction (i.e. SELECT).  This
@@ -172,22 +747,110 @@ public class PizzaStore {
     * @return the number of rows returned
     * @throws java.sql.SQLException when failed to execute the query
     */
-   public int executeQuery (String query) throws SQLException {
-       // creates a statement object
-       Statement stmt = this._connection.createStatement ();
+   public int executeQuery (final String query) throws SQLException {
+      return withConnection(pc -> {
+         // creates a statement object
+         Statement stmt = pc.getConnection().createStatement ();
+         try {
+            // issues the query instruction
+            return countRows(stmt.executeQuery (query));
+         } finally {
+            stmt.close ();
+         }//end try
+      });
+   }//end executeQuery
 
-       // issues the query instruction
-       ResultSet rs = stmt.executeQuery (query);
+   /**
+    * Method to execute a parameterized query and return the number of rows.
+    * The rows are counted by the server; see count().
+    *
+    * @param query the query to run
+    * @param params the parameter values in placeholder order
+    * @return the number of rows returned
+    * @throws java.sql.SQLException when failed to execute the query
+    */
+   public int executeQuery (final Query query, final Object... params) throws SQLException {
+      return (int) count(query, params);
+   }//end executeQuery
 
-       int rowCount = 0;
+   /**
+    * Work performed on an open result set.
+    */
+   private interface ResultWork<T> {
+      T run(ResultSet rs) throws SQLException;
+   }//end ResultWork
 
-       // iterates through the result set and count nuber of results.
-       while (rs.next()){
-          rowCount++;
-       }//end while
-       stmt.close ();
-       return rowCount;
-   }
+   /*
+    * Runs a query as a server-side cursor.  The Postgres driver only honours
+    * the fetch size with autocommit off, so the connection is switched for
+    * the duration of the query unless the caller already opened a transaction.
+    * Drivers that do not implement setFetchSize, such as the pg73 driver in
+    * lib/, get a plain query instead.
+    **/
+   private <T> T withCursor (final Query query, final int fetchSize, final Object[] params,
+                             final ResultWork<T> work) throws SQLException {
+      return withConnection(pc -> {
+         Connection conn = pc.getConnection();
+         PreparedStatement stmt = pc.prepare(query.getSql());
+         if (!setFetchSize(stmt, fetchSize))
+            return runQuery(stmt, params, work);
+         boolean autoCommit = conn.getAutoCommit();
+         if (autoCommit)
+            conn.setAutoCommit(false);
+         boolean done = false;
+         try {
+            T result = runQuery(stmt, params, work);
+            done = true;
+            return result;
+         } finally {
+            // the statement is cached, so restore its default fetch size
+            stmt.setFetchSize(0);
+            if (autoCommit) {
+               if (done)
+                  conn.commit();
+               else
+                  conn.rollback();
+               conn.setAutoCommit(true);
+            }//end if
+         }//end try
+      });
+   }//end withCursor
+
+   /*
+    * Sets the fetch size, remembering when the driver does not support it.
+    **/
+   private boolean setFetchSize (Statement stmt, int fetchSize) {
+      if (!this._cursorFetch)
+         return false;
+      try {
+         stmt.setFetchSize(fetchSize);
+         return true;
+      } catch (SQLException e) {
+         // e.g. Driver.notImplemented() from the pg73 driver
+         this._cursorFetch = false;
+         return false;
+      }//end try
+   }//end setFetchSize
+
+   private static <T> T runQuery (PreparedStatement stmt, Object[] params, ResultWork<T> work) throws SQLException {
+      bind(stmt, params);
+      ResultSet rs = stmt.executeQuery();
+      try {
+         return work.run(rs);
+      } finally {
+         rs.close();
+      }//end try
+   }//end runQuery
+
+   private static int countRows (ResultSet rs) throws SQLException {
+      int rowCount = 0;
+
+      // iterates through the result set and count nuber of results.
+      while (rs.next()){
+         rowCount++;
+      }//end while
+      return rowCount;
+   }//end countRows
 
    /**
     * Method to fetch the last value from sequence. This
@@ -198,26 +861,39 @@ public class PizzaStore {
     * @return current value of a sequence
     * @throws java.sql.SQLException when failed to execute the query
     */
-   public int getCurrSeqVal(String sequence) throws SQLException {
-	Statement stmt = this._connection.createStatement ();
-
-	ResultSet rs = stmt.executeQuery (String.format("Select currval('%s')", sequence));
-	if (rs.next())
-		return rs.getInt(1);
-	return -1;
+   public int getCurrSeqVal(final String sequence) throws SQLException {
+      return withConnection(pc -> {
+         Statement stmt = pc.getConnection().createStatement ();
+         try {
+            ResultSet rs = stmt.executeQuery (String.format("Select currval('%s')", sequence));
+            if (rs.next())
+               return rs.getInt(1);
+            return -1;
+         } finally {
+            stmt.close ();
+         }//end try
+      });
    }
 
    /**
-    * Method to close the physical connection if it is open.
+    * Method to close the pooled physical connections if they are open.
     */
    public void cleanup(){
-      try{
-         if (this._connection != null){
-            this._connection.close ();
+      // queued orders still need the pool
+      synchronized (this) {
+         if (this._sweeper != null){
+            this._sweeper.close ();
          }//end if
-      }catch (SQLException e){
-         // ignored.
-      }//end try
+         if (this._orderIntake != null){
+            this._orderIntake.close ();
+         }//end if
+      }//end synchronized
+      if (this._menuCache != null){
+         this._menuCache.close ();
+      }//end if
+      if (this._pool != null){
+         this._pool.close ();
+      }//end if
    }//end cleanup
 
    /**
@@ -226,12 +902,12 @@ public class PizzaStore {
     * @param args the command line arguments this inclues the <mysql|pgsql> <login file>
     */
    public static void main (String[] args) {
-      if (args.length != 3) {
+      if (args.length < 3) {
          System.err.println (
             "Usage: " +
             "java [-classpath <classpath>] " +
             PizzaStore.class.getName () +
-            " <dbname> <port> <user>");
+            " <dbname> <port> <user> [--format=tsv|csv|fixed] [--page-size=N] [--limit=N]");
          return;
       }//end if
 
@@ -245,7 +921,9 @@ public class PizzaStore {
          String dbname = args[0];
          String dbport = args[1];
          String user = args[2];
+         ResultPrinter printer = ResultPrinter.fromOptions(Arrays.copyOfRange(args, 3, args.length));
          esql = new PizzaStore (dbname, dbport, user, "");
+         esql.setPrinter(printer);
 
          boolean keepon = true;
          while(keepon) {
@@ -255,7 +933,7 @@ public class PizzaStore {
             System.out.println("1. Create user");
             System.out.println("2. Log in");
             System.out.println("9. < EXIT");
-            String authorisedUser = null;
+            Session authorisedUser = null;
             switch (readChoice()){
                case 1: CreateUser(esql); break;
                case 2: authorisedUser = LogIn(esql); break;
@@ -286,17 +964,17 @@ public class PizzaStore {
                 System.out.println(".........................");
                 System.out.println("20. Log out");
                 switch (readChoice()){
-                   case 1: viewProfile(esql); break;
-                   case 2: updateProfile(esql); break;
+                   case 1: viewProfile(esql, authorisedUser); break;
+                   case 2: updateProfile(esql, authorisedUser); break;
                    case 3: viewMenu(esql); break;
                    case 4: placeOrder(esql, authorisedUser); break; // Pass the user
-                   case 5: viewAllOrders(esql); break;
-                   case 6: viewRecentOrders(esql); break;
-                   case 7: viewOrderInfo(esql); break;
+                   case 5: viewAllOrders(esql, authorisedUser); break;
+                   case 6: viewRecentOrders(esql, authorisedUser); break;
+                   case 7: viewOrderInfo(esql, authorisedUser); break;
                    case 8: viewStores(esql); break;
-                   case 9: updateOrderStatus(esql); break;
-                   case 10: updateMenu(esql); break;
-                   case 11: updateUser(esql); break;
+                   case 9: updateOrderStatus(esql, authorisedUser); break;
+                   case 10: updateMenu(esql, authorisedUser); break;
+                   case 11: updateUser(esql, authorisedUser); break;
 
 
 
@@ -360,15 +1038,11 @@ public class PizzaStore {
         String password = in.readLine();
         System.out.print("Enter phone number: ");
         String phone = in.readLine();
-        System.out.print("Enter your role(Customer, Manager, Driver): ");
-        String role = in.readLine();
         System.out.print("Enter your favorite item: ");
         String favoriteItem = in.readLine();
 
-        String query = String.format("INSERT INTO Users (login, password, role, favoriteItems, phoneNum) " +
-                                     "VALUES ('%s', '%s', '%s', '%s', '%s');", username, password, role, favoriteItem, phone);
-
-        esql.executeUpdate(query);
+        // sign ups are customers; a manager makes drivers and managers with Update User
+        esql.getService().createUser(null, username, password, "customer", favoriteItem, phone);
         System.out.println("User successfully created!");
     } catch (Exception e) {
         System.err.println("Error: " + e.getMessage());
@@ -380,21 +1054,19 @@ public class PizzaStore {
 
    /*
     * Check log in credentials for an existing user
-    * @return User login or null is the user does not exist
+    * @return the user's session or null is the user does not exist
     **/
-   public static String LogIn(PizzaStore esql) {
+   public static Session LogIn(PizzaStore esql) {
     try {
         System.out.print("Enter username: ");
         String username = in.readLine();
         System.out.print("Enter password: ");
         String password = in.readLine();
 
-        String query = String.format("SELECT role FROM Users WHERE login = '%s' AND password = '%s';", username, password);
-
-        List<List<String>> result = esql.executeQueryAndReturnResult(query);
-        if (result.size() > 0) {
+        Session session = esql.getService().logIn(username, password);
+        if (session != null) {
             System.out.println("Login successful. Welcome, " + username + "!");
-            return username; // Return the username to maintain the session
+            return session; // Return the session so later actions need not look the user up again
         } else {
             System.out.println("Invalid credentials. Please try again.");
             return null;
@@ -409,34 +1081,17 @@ public class PizzaStore {
 
 // Rest of the functions definition go in here
 
-   public static void viewProfile(PizzaStore esql) {
-    try {
-        System.out.print("Enter your username: ");
-        String username = in.readLine();
-
-        String query = String.format(
-            "SELECT login, favoriteItems, phoneNum FROM Users WHERE login = '%s';", username);
-
-        List<List<String>> result = esql.executeQueryAndReturnResult(query);
-
-        if (result.size() > 0) {
-            System.out.println("Profile Details:");
-            System.out.println("Username: " + result.get(0).get(0));
-            System.out.println("Favorite Items: " + result.get(0).get(1));
-            System.out.println("Phone Number: " + result.get(0).get(2));
-        } else {
-            System.out.println("No profile found for the given username.");
-        }
-    } catch (Exception e) {
-        System.err.println("Error: " + e.getMessage());
-    }
+   public static void viewProfile(PizzaStore esql, Session session) {
+    // the profile was read at log in and is kept current by updateProfile
+    Session profile = esql.getService().getProfile(session);
+    System.out.println("Profile Details:");
+    System.out.println("Username: " + profile.getLogin());
+    System.out.println("Favorite Items: " + profile.getFavoriteItems());
+    System.out.println("Phone Number: " + profile.getPhoneNum());
    }
 
-   public static void updateProfile(PizzaStore esql) {
+   public static void updateProfile(PizzaStore esql, Session session) {
     try {
-        System.out.print("Enter your username: ");
-        String username = in.readLine();
-
         System.out.println("What would you like to update?");
         System.out.println("1. Favorite Items");
         System.out.println("2. Phone Number");
@@ -447,23 +1102,23 @@ public class PizzaStore {
             case 1:
                 System.out.print("Enter your new favorite items: ");
                 String newFavoriteItems = in.readLine();
-                String updateFavoriteQuery = String.format(
-                    "UPDATE Users SET favoriteItems = '%s' WHERE login = '%s';",
-                    newFavoriteItems, username);
-                esql.executeUpdate(updateFavoriteQuery);
+                esql.getService().updateProfile(session, newFavoriteItems, null, null);
                 System.out.println("Favorite items updated successfully.");
                 break;
 
             case 2:
                 System.out.print("Enter your new phone number: ");
                 String newPhoneNum = in.readLine();
-                String updatePhoneQuery = String.format(
-                    "UPDATE Users SET phoneNum = '%s' WHERE login = '%s';",
-                    newPhoneNum, username);
-                esql.executeUpdate(updatePhoneQuery);
+                esql.getService().updateProfile(session, null, newPhoneNum, null);
                 System.out.println("Phone number updated successfully.");
                 break;
 
+            case 3:
+                System.out.print("Enter your new password: ");
+                esql.getService().updateProfile(session, null, null, in.readLine());
+                System.out.println("Password updated successfully.");
+                break;
+
             default:
                 System.out.println("Invalid choice. Please try again.");
         }
@@ -479,46 +1134,58 @@ public class PizzaStore {
         System.out.println("2. Filter by type");
         System.out.println("3. Filter by price");
         System.out.println("4. Sort by price");
+        System.out.println("5. Search");
 
+        // the menu and its indexes are served from memory; no query is issued here
+        MenuCache.Menu menu = esql.getService().getMenu();
+        List<MenuItem> items;
         switch (readChoice()) {
             case 1:
-                esql.executeQueryAndPrintResult("SELECT * FROM Items;");
+                items = menu.getItems();
                 break;
             case 2:
                 System.out.print("Enter type of item (e.g., drinks, sides): ");
-                String type = in.readLine().trim().toLowerCase();
-                esql.executeQueryAndPrintResult("SELECT * FROM Items WHERE LOWER(typeOfItem) = ' " + type + "';");
-                break; //case 2 is not working debugging required
+                items = menu.byType(in.readLine());
+                break;
             case 3:
                 System.out.print("Enter maximum price: ");
-                double priceLimit = Double.parseDouble(in.readLine());
-                esql.executeQueryAndPrintResult("SELECT * FROM Items WHERE price <= " + priceLimit + ";");
+                items = menu.atMost(new BigDecimal(in.readLine().trim()).movePointRight(2).longValue());
                 break;
             case 4:
                 System.out.println("Sort by price:");
                 System.out.println("1. Lowest to Highest");
                 System.out.println("2. Highest to Lowest");
-                int sortChoice = readChoice();
-                String order = (sortChoice == 1) ? "ASC" : "DESC";
-                esql.executeQueryAndPrintResult("SELECT * FROM Items ORDER BY price " + order + ";");
+                items = menu.byPrice(readChoice() == 1);
+                break;
+            case 5:
+                System.out.print("Search for (e.g., pepperoni, no cheese): ");
+                items = esql.searchMenu(in.readLine(), SEARCH_LIMIT);
                 break;
             default:
                 System.out.println("Invalid choice.");
+                return;
         }
+        List<String[]> rows = new ArrayList<String[]>(items.size());
+        for (MenuItem item : items)
+            rows.add(item.toRow());
+        if (esql.printRows(MenuItem.HEADER, rows) == 0)
+            System.out.println("No items found.");
     } catch (Exception e) {
         System.err.println("Error: " + e.getMessage());
     }
 }
 
-   public static void placeOrder(PizzaStore esql, String authorisedUser) {
+   public static void placeOrder(PizzaStore esql, Session session) {
     try {
         // Step 1: Get store ID
         System.out.print("Enter store ID: ");
         int storeID = Integer.parseInt(in.readLine());
+        if (!esql.getService().storeExists(storeID)) {
+            System.out.println("Store not found. Aborting.");
+            return;
+        }
 
-        double totalPrice = 0.0;
-        List<String> items = new ArrayList<>();
-        List<Integer> quantities = new ArrayList<>();
+        Map<String, Integer> items = new LinkedHashMap<String, Integer>();
 
         // Step 2: Collect items and quantities
         while (true) {
@@ -528,18 +1195,19 @@ public class PizzaStore {
 
             System.out.print("Enter quantity: ");
             int quantity = Integer.parseInt(in.readLine().trim());
-
-            // Validate item name and get price
-            String query = String.format("SELECT price FROM Items WHERE itemName = '%s';", itemName);
-            List<List<String>> result = esql.executeQueryAndReturnResult(query);
-
-            if (!result.isEmpty()) {
-                double price = Double.parseDouble(result.get(0).get(0));
-                totalPrice += price * quantity;
-                items.add(itemName);
-                quantities.add(quantity);
-            } else {
+            if (esql.getService().getMenu().get(itemName) == null) {
                 System.out.println("Item not found. Please try again.");
+                List<MenuItem> similar = esql.getService().searchMenu(itemName, 3);
+                if (!similar.isEmpty()) {
+                    StringBuilder names = new StringBuilder("Did you mean: ");
+                    for (int i = 0; i < similar.size(); ++i)
+                        names.append(i > 0 ? ", " : "").append(similar.get(i).getItemName());
+                    System.out.println(names);
+                }
+            } else if (quantity > 0) {
+                items.merge(itemName, quantity, Integer::sum);
+            } else {
+                System.out.println("Quantity must be positive. Please try again.");
             }
         }
 
@@ -549,69 +1217,80 @@ public class PizzaStore {
             return;
         }
 
-        // Step 3: Determine the next orderID
-        String maxOrderIDQuery = "SELECT COALESCE(MAX(orderID), 0) + 1 FROM FoodOrder;";
-        List<List<String>> orderIDResult = esql.executeQueryAndReturnResult(maxOrderIDQuery);
-        int orderID = Integer.parseInt(orderIDResult.get(0).get(0));
-
-        // Step 4: Insert order into FoodOrder
-        String insertOrder = String.format(
-            "INSERT INTO FoodOrder (orderID, login, storeID, totalPrice, orderTimestamp, orderStatus) " +
-            "VALUES (%d, '%s', %d, %.2f, NOW(), 'placed');",
-            orderID, authorisedUser, storeID, totalPrice);
-        esql.executeUpdate(insertOrder);
-
-        // Step 5: Insert items into ItemsInOrder
-        for (int i = 0; i < items.size(); i++) {
-            String insertItem = String.format(
-                "INSERT INTO ItemsInOrder (orderID, itemName, quantity) VALUES (%d, '%s', %d);",
-                orderID, items.get(i), quantities.get(i));
-            esql.executeUpdate(insertItem);
+        // Step 3: Price the items and write the order and its lines in one transaction
+        Order order = esql.getService().placeOrder(session, storeID, items);
+        for (String itemName : order.getRejectedItems())
+            System.out.println("Item not found: " + itemName);
+        if (order.getOrderID() == 0) {
+            System.out.println("No items in the order. Aborting.");
+            return;
         }
 
-        // Step 6: Confirm success
+        // Step 4: Confirm success
         System.out.println("Order placed successfully!");
-        System.out.printf("Total Price: $%.2f\n", totalPrice);
+        System.out.println("Order ID: " + order.getOrderID());
+        System.out.println("Total Price: $" + Columns.formatCents(order.getTotalCents()));
     } catch (Exception e) {
         System.err.println("Error: " + e.getMessage());
     }
 }
 
 
-   public static void viewAllOrders(PizzaStore esql)
+   public static void viewAllOrders(PizzaStore esql, Session session)
    {
         try
         {
-     
-
-              System.out.println("Enter your username: ");
-              String username = in.readLine();
-
-              List< List<String> > result = esql.executeQueryAndReturnResult(String.format("SELECT role FROM Users WHERE login = '%s';", username));
-
-              if(result.get(0).get(0).equalsIgnoreCase("Customer"))
-              {
-                    esql.executeQueryAndPrintResult("SELECT OrderID from FoodOrder JOIN Users ON Users.login = FoodOrder.login WHERE Users.role = 'Customer';");
-              }
-              else
+              // customers page through their own orders, staff through everyone's
+              OrderHistory.Cursor cursor = null;
+              do
               {
-                esql.executeQueryAndPrintResult("SELECT OrderID from FoodOrder ORDER BY orderStatus DESC;");
-              }
-
+                    OrderHistory.Page page = esql.getService().orderHistory(session, cursor, HISTORY_PAGE_SIZE);
+                    List<String[]> rows = new ArrayList<String[]>();
+                    for (OrderSummary order : page.getOrders())
+                          rows.add(order.toRow());
+                    if (esql.printRows(OrderSummary.HEADER, rows) == 0)
+                          System.out.println("No orders found.");
+                    cursor = page.getNext();
+                    if (cursor != null)
+                    {
+                          System.out.print("Press Enter for the next page, a for all the rest, or q to stop: ");
+                          String answer = in.readLine();
+                          if (answer == null || answer.trim().equalsIgnoreCase("q"))
+                                cursor = null;
+                          else if (answer.trim().equalsIgnoreCase("a"))
+                          {
+                                // streamed and printed a page at a time, in constant heap
+                                final List<String[]> rest = new ArrayList<String[]>(HISTORY_PAGE_SIZE);
+                                esql.getService().forEachOrder(session, cursor, order -> {
+                                      rest.add(order.toRow());
+                                      if (rest.size() == HISTORY_PAGE_SIZE)
+                                      {
+                                            esql.printRows(OrderSummary.HEADER, rest);
+                                            rest.clear();
+                                      }
+                                      return true;
+                                });
+                                if (!rest.isEmpty())
+                                      esql.printRows(OrderSummary.HEADER, rest);
+                                cursor = null;
+                          }
+                    }
+              } while (cursor != null);
         }
         catch(Exception e)
         {
             System.err.println("Error: " + e.getMessage());
         }
    }
-   public static void viewRecentOrders(PizzaStore esql)
+   public static void viewRecentOrders(PizzaStore esql, Session session)
    {
         try
         {
-              System.out.println("Enter your username: ");
-              String username = in.readLine();
-
-              esql.executeQueryAndPrintResult(String.format("SELECT OrderID from FoodOrder JOIN Users ON Users.login = FoodOrder.login WHERE Users.login = '%s' ORDER BY orderTimestamp DESC LIMIT 5;", username));
+              List<String[]> rows = new ArrayList<String[]>();
+              for (OrderSummary order : esql.getService().recentOrders(session))
+                    rows.add(order.toRow());
+              if (esql.printRows(OrderSummary.HEADER, rows) == 0)
+                    System.out.println("No orders found.");
 
         }
         catch(Exception e)
@@ -620,29 +1299,27 @@ public class PizzaStore {
         }
    }
    
-   public static void viewOrderInfo(PizzaStore esql)
+   public static void viewOrderInfo(PizzaStore esql, Session session)
    {
         try
         {
-              System.out.println("Enter your username: ");
-              String username = in.readLine();
               System.out.println("Enter your OrderID: ");
               int orderID = Integer.parseInt(in.readLine());
 
-              List< List<String> > result = esql.executeQueryAndReturnResult(String.format("SELECT role FROM Users WHERE login = '%s';", username));
-
-              if(result.get(0).get(0).equalsIgnoreCase("Customer"))
-              {
-                   List<List <String> > info = esql.executeQueryAndReturnResult(String.format("SELECT * FROM FoodOrder WHERE FoodOrder.orderID = %d AND Users.login = %s", orderID, username) );
+              // customers only see their own orders
+              OrderDetail detail = esql.getService().orderDetail(session, orderID);
+              if (detail == null) {
+                   System.out.println("Order not found.");
+                   return;
               }
-              else
-              {
-                List<List <String> > info = esql.executeQueryAndReturnResult(String.format("SELECT * FROM FoodOrder WHERE FoodOrder.orderID = %d;", orderID));
-              }
-
-              esql.executeQueryAndPrintResult(String.format("SELECT * FROM itemsInOrder WHERE orderID = %d", orderID));
-
-
+              List<String[]> header = new ArrayList<String[]>(1);
+              header.add(detail.getSummary().toRow());
+              esql.printRows(OrderSummary.HEADER, header);
+
+              List<String[]> lines = new ArrayList<String[]>(detail.getLines().size());
+              for (OrderDetail.Line line : detail.getLines())
+                   lines.add(line.toRow());
+              esql.printRows(OrderDetail.LINE_HEADER, lines);
         }
         catch(Exception e)
         {
@@ -653,41 +1330,92 @@ public class PizzaStore {
    {
         try
         {
+              System.out.println("View Stores Options:");
+              System.out.println("1. View all stores");
+              System.out.println("2. Filter by state and city");
+              System.out.println("3. Top rated stores");
+              int choice = readChoice();
+              if (choice < 1 || choice > 3)
+              {
+                    System.out.println("Invalid choice.");
+                    return;
+              }
+              System.out.print("Open stores only? (y/n): ");
+              boolean openOnly = in.readLine().trim().equalsIgnoreCase("y");
 
-              esql.executeQueryAndPrintResult("SELECT DISTINCT * FROM Store;");
+              // answered from the in-memory directory; no query is issued here
+              StoreDirectory.Directory directory = esql.getService().getStores();
+              List<Store> stores;
+              if (choice == 1)
+              {
+                    stores = directory.find(null, null, openOnly);
+              }
+              else if (choice == 2)
+              {
+                    System.out.print("Enter state: ");
+                    String state = in.readLine();
+                    System.out.print("Enter city (blank for every city): ");
+                    stores = directory.find(state, in.readLine(), openOnly);
+              }
+              else
+              {
+                    System.out.print("Enter state (blank for every state): ");
+                    String state = in.readLine();
+                    System.out.print("How many stores: ");
+                    stores = directory.top(Integer.parseInt(in.readLine().trim()), state, openOnly);
+              }
 
+              if (stores.isEmpty())
+              {
+                    System.out.println("No stores found.");
+                    return;
+              }
+              for (int from = 0; from < stores.size(); from += STORE_PAGE_SIZE)
+              {
+                    if (from > 0)
+                    {
+                          System.out.print("Press Enter for the next page or q to stop: ");
+                          String answer = in.readLine();
+                          if (answer == null || answer.trim().equalsIgnoreCase("q"))
+                                break;
+                    }
+                    List<String[]> rows = new ArrayList<String[]>(STORE_PAGE_SIZE);
+                    for (Store store : stores.subList(from, Math.min(from + STORE_PAGE_SIZE, stores.size())))
+                          rows.add(store.toRow());
+                    esql.printRows(Store.HEADER, rows);
+              }
         }
         catch(Exception e)
         {
             System.err.println("Error: " + e.getMessage());
         }
    }
-   public static void updateOrderStatus(PizzaStore esql) {
+   public static void updateOrderStatus(PizzaStore esql, Session session) {
     try {
-        System.out.print("Enter your username: ");
-        String username = in.readLine();
-
-        // Check if the user is authorized directly in the query
-        String roleQuery = String.format(
-            "SELECT COUNT(*) FROM Users WHERE login = '%s' AND (LOWER(role) = 'manager' OR LOWER(role) = 'driver');",
-            username
-        );
-        int authorizedCount = esql.executeQuery(roleQuery);
-
-        if (authorizedCount > 0) {
-            System.out.print("Enter the orderID: ");
-            int orderID = Integer.parseInt(in.readLine());
-
-            System.out.print("Enter the new Order Status (incomplete, in progress, or complete): ");
-            String orderStatus = in.readLine().trim().toLowerCase();
-
-            String updateQuery = String.format(
-                "UPDATE FoodOrder SET orderStatus = '%s' WHERE orderID = %d;",
-                orderStatus, orderID
-            );
-            esql.executeUpdate(updateQuery);
+        // Check if the user is authorized against the role read at log in
+        if (session.isManager() || session.isDriver()) {
+            // several orders move in one statement, e.g. a driver's whole run
+            System.out.print("Enter the orderID(s), separated by spaces: ");
+            Map<Integer, Integer> orders = new LinkedHashMap<Integer, Integer>();
+            for (String orderID : in.readLine().trim().split("[\\s,]+"))
+                if (!orderID.isEmpty())
+                    orders.put(Integer.parseInt(orderID), null);
+            if (orders.isEmpty()) {
+                System.out.println("No orders given.");
+                return;
+            }
 
-            System.out.println("Order Status Updated Successfully!");
+            System.out.print("Enter the new Order Status (" + OrderStatus.labels() + "): ");
+            String orderStatus = in.readLine();
+
+            List<OrderSummary> moved = esql.getService().updateOrderStatus(session, orders, orderStatus);
+            for (OrderSummary order : moved)
+                orders.remove(order.getOrderID());
+            if (!moved.isEmpty())
+                System.out.println(moved.size() + " order(s) updated successfully!");
+            if (!orders.isEmpty())
+                System.out.println("Not updated, not found or cannot become '" + orderStatus.trim()
+                                   + "' from their current status: " + orders.keySet());
         } else {
             System.out.println("Access denied. Only Managers or Drivers can update order status.");
         }
@@ -697,19 +1425,10 @@ public class PizzaStore {
 }
 
 
-   public static void updateMenu(PizzaStore esql) {
+   public static void updateMenu(PizzaStore esql, Session session) {
     try {
-        System.out.print("Enter your username: ");
-        String username = in.readLine();
-
         // Check if the user is a Manager
-        String roleQuery = String.format(
-            "SELECT COUNT(*) FROM Users WHERE login = '%s' AND LOWER(role) = 'manager';",
-            username
-        );
-        int isManager = esql.executeQuery(roleQuery);
-
-        if (isManager > 0) {
+        if (session.isManager()) {
             System.out.println("What would you like to update?");
             System.out.println("1. Update existing item");
             System.out.println("2. Add item");
@@ -726,15 +1445,16 @@ public class PizzaStore {
                     System.out.print("Enter the new type of item (e.g., drinks, sides): ");
                     String newType = in.readLine().trim().toLowerCase();
                     System.out.print("Enter the new price: ");
-                    double priceLimit = Double.parseDouble(in.readLine());
+                    BigDecimal priceLimit = new BigDecimal(in.readLine().trim());
                     System.out.print("Enter the description: ");
                     String description = in.readLine();
 
-                    String updateQuery = String.format(
-                        "UPDATE Items SET itemName = '%s', ingredients = '%s', typeOfItem = '%s', price = %.2f, description = '%s' WHERE itemName = '%s';",
-                        newItemName, newIngredients, newType, priceLimit, description, oldItemName
-                    );
-                    esql.executeUpdate(updateQuery);
+                    MenuItem updated = new MenuItem(newItemName, newIngredients, newType,
+                                                    priceLimit.movePointRight(2).longValue(), description);
+                    if (!esql.getService().updateMenuItem(session, oldItemName, updated)) {
+                        System.out.println("Item not found.");
+                        break;
+                    }
                     System.out.println("Menu updated successfully.");
                     break;
 
@@ -746,15 +1466,12 @@ public class PizzaStore {
                     System.out.print("Enter the new type of item (e.g., drinks, sides): ");
                     newType = in.readLine().trim().toLowerCase();
                     System.out.print("Enter the new price: ");
-                    priceLimit = Double.parseDouble(in.readLine());
+                    priceLimit = new BigDecimal(in.readLine().trim());
                     System.out.print("Enter the description: ");
                     description = in.readLine();
 
-                    String newQuery = String.format(
-                        "INSERT INTO Items(itemName, ingredients, typeOfItem, price, description) VALUES ('%s', '%s', '%s', %.2f, '%s');",
-                        newItemName, newIngredients, newType, priceLimit, description
-                    );
-                    esql.executeUpdate(newQuery);
+                    esql.getService().addMenuItem(session, new MenuItem(newItemName, newIngredients, newType,
+                                                                        priceLimit.movePointRight(2).longValue(), description));
                     System.out.println("Menu updated successfully.");
                     break;
 
@@ -769,19 +1486,10 @@ public class PizzaStore {
     }
 }
 
-   public static void updateUser(PizzaStore esql) {
+   public static void updateUser(PizzaStore esql, Session session) {
     try {
-        System.out.print("Enter your username: ");
-        String username = in.readLine();
-
         // Check if the user is a Manager
-        String roleQuery = String.format(
-            "SELECT COUNT(*) FROM Users WHERE login = '%s' AND LOWER(role) = 'manager';",
-            username
-        );
-        int isManager = esql.executeQuery(roleQuery);
-
-        if (isManager > 0) {
+        if (session.isManager()) {
             System.out.print("Enter the current username to update: ");
             String oldName = in.readLine();
 
@@ -792,38 +1500,38 @@ public class PizzaStore {
             System.out.println("5. Change username");
             int choice = readChoice();
 
-            String query = "";
+            PizzaService.UserField field;
             switch (choice) {
                 case 1:
                     System.out.print("Enter the new role: ");
-                    String newRole = in.readLine();
-                    query = String.format("UPDATE Users SET role = '%s' WHERE login = '%s';", newRole, oldName);
+                    field = PizzaService.UserField.ROLE;
                     break;
                 case 2:
                     System.out.print("Enter the new password: ");
-                    String newPassword = in.readLine();
-                    query = String.format("UPDATE Users SET password = '%s' WHERE login = '%s';", newPassword, oldName);
+                    field = PizzaService.UserField.PASSWORD;
                     break;
                 case 3:
                     System.out.print("Enter the new phone number: ");
-                    String newNumber = in.readLine();
-                    query = String.format("UPDATE Users SET phoneNum = '%s' WHERE login = '%s';", newNumber, oldName);
+                    field = PizzaService.UserField.PHONE_NUM;
                     break;
                 case 4:
                     System.out.print("Enter the new favorite item: ");
-                    String newFavorite = in.readLine();
-                    query = String.format("UPDATE Users SET favoriteItems = '%s' WHERE login = '%s';", newFavorite, oldName);
+                    field = PizzaService.UserField.FAVORITE_ITEMS;
                     break;
                 case 5:
                     System.out.print("Enter the new username: ");
-                    String newName = in.readLine();
-                    query = String.format("UPDATE Users SET login = '%s' WHERE login = '%s';", newName, oldName);
+                    field = PizzaService.UserField.LOGIN;
                     break;
                 default:
                     System.out.println("Invalid choice. Please try again.");
+                    return;
             }
 
-            esql.executeUpdate(query);
+            // the service checks the value and keeps this session in step when managers edit themselves
+            if (!esql.getService().updateUser(session, oldName, field, in.readLine())) {
+                System.out.println("User not found.");
+                return;
+            }
             System.out.println("User Updated Successfully!");
         } else {
             System.out.println("Access denied. Only Managers can update user information.");
@@ -0,0 +1,153 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+/**
+ * Every parameterized statement issued by the PizzaStore operations,
+ * grouped by the operation that uses it.
+ *
+ */
+public final class Queries {
+
+   private Queries() {
+   }
+
+   // CreateUser
+   public static final Query INSERT_USER = new Query("insertUser",
+      "INSERT INTO Users (login, password, role, favoriteItems, phoneNum) VALUES (?, ?, ?, ?, ?)");
+
+   // LogIn
+   public static final Query LOGIN = new Query("login",
+      "SELECT login, role, favoriteItems, phoneNum FROM Users WHERE login = ? AND password = ?");
+
+   // updateProfile
+   public static final Query UPDATE_FAVORITE_ITEMS = new Query("updateFavoriteItems",
+      "UPDATE Users SET favoriteItems = ? WHERE login = ?");
+   public static final Query UPDATE_PHONE_NUM = new Query("updatePhoneNum",
+      "UPDATE Users SET phoneNum = ? WHERE login = ?");
+
+   // MenuCache
+   public static final Query MENU_ITEMS = new Query("menuItems",
+      "SELECT itemName, ingredients, typeOfItem, price, description FROM Items");
+   public static final Query MENU_ITEM = new Query("menuItem",
+      "SELECT itemName, ingredients, typeOfItem, price, description FROM Items WHERE itemName = ?");
+   public static final Query MENU_SEARCH = new Query("menuSearch",
+      "SELECT itemName, ingredients, typeOfItem, price, description FROM Items, "
+      + "to_tsquery('simple', ?) AS q WHERE " + MenuCache.SEARCH_DOCUMENT + " @@ q "
+      + "ORDER BY ts_rank(" + MenuCache.SEARCH_DOCUMENT + ", q) DESC, itemName LIMIT ?");
+   public static final Query NOTIFY_MENU_CHANGED = new Query("notifyMenuChanged",
+      "SELECT pg_notify('" + MenuCache.CHANNEL + "', ?)");
+
+   // placeOrder
+   public static final Query STORE_BY_ID = new Query("storeByID",
+      "SELECT 1 FROM Store WHERE storeID = ?");
+   public static final Query NEXT_ORDER_ID_BLOCK = new Query("nextOrderIDBlock",
+      "SELECT nextval('FoodOrder_orderID_seq')");
+   public static final Query INSERT_ORDER = new Query("insertOrder",
+      "INSERT INTO FoodOrder (orderID, login, storeID, totalPrice, orderTimestamp, orderStatus) "
+      + "VALUES (?, ?, ?, ?, NOW(), 'placed') RETURNING orderTimestamp");
+   public static final Query INSERT_ORDER_BATCH = new Query("insertOrderBatch",
+      "INSERT INTO FoodOrder (orderID, login, storeID, totalPrice, orderTimestamp, orderStatus) "
+      + "VALUES (?, ?, ?, ?, NOW(), 'placed')");
+   // FOR SHARE holds the prices until the order commits; menu updates wait for it
+   public static final Query ORDER_ITEM_PRICES = new Query("orderItemPrices",
+      "SELECT itemName, price FROM Items WHERE itemName = ANY(CAST(? AS varchar[])) FOR SHARE");
+   public static final Query TRANSACTION_TIMESTAMP = new Query("transactionTimestamp",
+      "SELECT NOW()");
+   public static final Query INSERT_ORDER_ITEM = new Query("insertOrderItem",
+      "INSERT INTO ItemsInOrder (orderID, itemName, quantity, price) VALUES (?, ?, ?, ?)");
+
+   // viewAllOrders / viewRecentOrders / viewOrderInfo
+   public static final Query USER_ORDERS_FIRST_PAGE = new Query("userOrdersFirstPage",
+      "SELECT " + OrderSummary.COLUMNS + " FROM FoodOrder WHERE login = ? "
+      + "ORDER BY orderTimestamp DESC, orderID DESC LIMIT ?");
+   public static final Query USER_ORDERS_NEXT_PAGE = new Query("userOrdersNextPage",
+      "SELECT " + OrderSummary.COLUMNS + " FROM FoodOrder WHERE login = ? AND (orderTimestamp, orderID) < (?, ?) "
+      + "ORDER BY orderTimestamp DESC, orderID DESC LIMIT ?");
+   public static final Query ALL_ORDERS_FIRST_PAGE = new Query("allOrdersFirstPage",
+      "SELECT " + OrderSummary.COLUMNS + " FROM FoodOrder "
+      + "ORDER BY orderTimestamp DESC, orderID DESC LIMIT ?");
+   public static final Query ALL_ORDERS_NEXT_PAGE = new Query("allOrdersNextPage",
+      "SELECT " + OrderSummary.COLUMNS + " FROM FoodOrder WHERE (orderTimestamp, orderID) < (?, ?) "
+      + "ORDER BY orderTimestamp DESC, orderID DESC LIMIT ?");
+   public static final Query ORDER_DETAIL = new Query("orderDetail",
+      "SELECT " + OrderDetail.COLUMNS + " FROM FoodOrder o "
+      + "LEFT JOIN ItemsInOrder l ON l.orderID = o.orderID "
+      + "WHERE o.orderID = ? ORDER BY l.itemName");
+   public static final Query ORDER_DETAIL_FOR_USER = new Query("orderDetailForUser",
+      "SELECT " + OrderDetail.COLUMNS + " FROM FoodOrder o "
+      + "LEFT JOIN ItemsInOrder l ON l.orderID = o.orderID "
+      + "WHERE o.orderID = ? AND o.login = ? ORDER BY l.itemName");
+
+   // StaleOrderSweeper: chunks of orders older than the given number of days,
+   // in foodorderTimestamp index order from the saved high-water mark
+   public static final Query SWEEP_FIRST_CHUNK = new Query("sweepFirstChunk",
+      "SELECT " + OrderSummary.COLUMNS + " FROM FoodOrder "
+      + "WHERE orderTimestamp < NOW() - CAST(? AS integer) * INTERVAL '1 day' "
+      + "ORDER BY orderTimestamp, orderID LIMIT ?");
+   public static final Query SWEEP_NEXT_CHUNK = new Query("sweepNextChunk",
+      "SELECT " + OrderSummary.COLUMNS + " FROM FoodOrder WHERE (orderTimestamp, orderID) > (?, ?) "
+      + "AND orderTimestamp < NOW() - CAST(? AS integer) * INTERVAL '1 day' "
+      + "ORDER BY orderTimestamp, orderID LIMIT ?");
+   public static final Query SWEEP_MARK = new Query("sweepMark",
+      "SELECT orderTimestamp, orderID FROM SweepMark WHERE sweep = ?");
+   // the mark only moves forward, whichever process saves it
+   public static final Query SAVE_SWEEP_MARK = new Query("saveSweepMark",
+      "INSERT INTO SweepMark (sweep, orderTimestamp, orderID) VALUES (?, ?, ?) "
+      + "ON CONFLICT (sweep) DO UPDATE SET orderTimestamp = EXCLUDED.orderTimestamp, orderID = EXCLUDED.orderID "
+      + "WHERE (SweepMark.orderTimestamp, SweepMark.orderID) < (EXCLUDED.orderTimestamp, EXCLUDED.orderID)");
+
+   // StoreDirectory
+   public static final Query ALL_STORES = new Query("allStores",
+      "SELECT storeID, address, city, state, isOpen, reviewScore FROM Store ORDER BY storeID");
+
+   // updateOrderStatus: moves every listed order whose status may become the
+   // new one and whose version still matches, or any version where it is null
+   public static final Query TRANSITION_ORDERS = new Query("transitionOrders",
+      "UPDATE FoodOrder SET orderStatus = CAST(? AS OrderStatus), version = version + 1 "
+      + "FROM unnest(CAST(? AS integer[]), CAST(? AS integer[])) AS t(id, expected) "
+      + "WHERE orderID = t.id AND version = COALESCE(t.expected, version) "
+      + "AND orderStatus = ANY(CAST(? AS OrderStatus[])) RETURNING " + OrderSummary.COLUMNS);
+
+   // updateMenu
+   public static final Query UPDATE_ITEM = new Query("updateItem",
+      "UPDATE Items SET itemName = ?, ingredients = ?, typeOfItem = ?, price = ?, description = ? WHERE itemName = ?");
+   public static final Query INSERT_ITEM = new Query("insertItem",
+      "INSERT INTO Items (itemName, ingredients, typeOfItem, price, description) VALUES (?, ?, ?, ?, ?)");
+
+   // updateUser
+   public static final Query USER_BY_LOGIN = new Query("userByLogin",
+      "SELECT 1 FROM Users WHERE login = ?");
+   public static final Query UPDATE_USER_ROLE = new Query("updateUserRole",
+      "UPDATE Users SET role = ? WHERE login = ?");
+   public static final Query UPDATE_USER_PASSWORD = new Query("updateUserPassword",
+      "UPDATE Users SET password = ? WHERE login = ?");
+   public static final Query UPDATE_USER_LOGIN = new Query("updateUserLogin",
+      "UPDATE Users SET login = ? WHERE login = ?");
+
+   // LoadGenerator
+   public static final Query LOAD_USERS = new Query("loadUsers",
+      "SELECT login, role FROM Users ORDER BY login LIMIT ?");
+   public static final Query LOAD_ORDER_ID_RANGE = new Query("loadOrderIDRange",
+      "SELECT MIN(orderID), MAX(orderID) FROM FoodOrder");
+
+   // BulkLoader
+   public static final Query LOAD_SECONDARY_INDEXES = new Query("loadSecondaryIndexes",
+      "SELECT i.indexname, i.indexdef FROM pg_indexes i WHERE i.schemaname = current_schema() "
+      + "AND i.tablename IN ('users', 'items', 'store', 'foodorder', 'itemsinorder') "
+      + "AND NOT EXISTS (SELECT 1 FROM pg_constraint c "
+      + "WHERE c.conindid = (quote_ident(i.schemaname) || '.' || quote_ident(i.indexname))::regclass)");
+   public static final Query RESET_SWEEP_MARKS = new Query("resetSweepMarks",
+      "DELETE FROM SweepMark");
+   public static final Query RESET_ORDER_ID_SEQUENCE = new Query("resetOrderIDSequence",
+      "SELECT setval('FoodOrder_orderID_seq', (SELECT COALESCE(MAX(orderID), 0) + 1 FROM FoodOrder), false)");
+
+}//end Queries
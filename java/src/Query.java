@@ -0,0 +1,66 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+/**
+ * A named, parameterized SQL statement.  Every query PizzaStore runs is
+ * declared once as a Query constant and bound with '?' parameters, so the
+ * text is identical on every call and can be served from the statement
+ * cache of the connection it runs on.
+ *
+ */
+public final class Query {
+
+   private final String _name;
+   private final String _sql;
+
+   // the query wrapped for PizzaStore.exists() and PizzaStore.count()
+   private final String _existsSql;
+   private final String _countSql;
+
+   /**
+    * @param name a short name used in diagnostics
+    * @param sql the SQL text with '?' placeholders
+    */
+   public Query(String name, String sql) {
+      this._name = name;
+      this._sql = sql;
+      this._existsSql = "SELECT EXISTS (" + sql + ")";
+      this._countSql = "SELECT COUNT(*) FROM (" + sql + ") AS counted";
+   }//end Query
+
+   public String getName() {
+      return this._name;
+   }
+
+   public String getSql() {
+      return this._sql;
+   }
+
+   /**
+    * @return the query wrapped so the server answers whether it has any row
+    */
+   public String getExistsSql() {
+      return this._existsSql;
+   }
+
+   /**
+    * @return the query wrapped so the server counts its rows
+    */
+   public String getCountSql() {
+      return this._countSql;
+   }
+
+   public String toString() {
+      return this._name;
+   }
+
+}//end Query
@@ -0,0 +1,195 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps each active user's most recent orders in a small ring buffer so
+ * viewRecentOrders is answered from memory.  A user's ring is loaded from
+ * the database on first access and then kept current write-through by
+ * orderPlaced() and statusChanged().  At most a fixed number of users are
+ * held; the one idle the longest is evicted first.
+ *
+ * The cache only sees writes made through this process, so entries also
+ * expire after a time to live and are reloaded to pick up orders placed
+ * elsewhere.
+ *
+ */
+public class RecentOrdersCache {
+
+   // number of orders kept per user
+   public static final int DEPTH = 5;
+
+   /*
+    * Fixed-size ring of a user's newest orders.  head is the slot of the
+    * newest order; older orders follow it backwards.
+    **/
+   private static final class Ring {
+      final OrderSummary[] slots = new OrderSummary[DEPTH];
+      final long loadedAt;
+      int head = -1;
+      int size = 0;
+
+      Ring(List<OrderSummary> newestFirst, long loadedAt) {
+         this.loadedAt = loadedAt;
+         for (int i = Math.min(newestFirst.size(), DEPTH) - 1; i >= 0; --i)
+            add(newestFirst.get(i));
+      }
+
+      synchronized void add(OrderSummary order) {
+         // a load that ran between the commit and orderPlaced() already has it
+         for (int i = 0; i < this.size; ++i) {
+            if (this.slots[i].getOrderID() == order.getOrderID()) {
+               this.slots[i] = order;
+               return;
+            }//end if
+         }//end for
+         this.head = (this.head + 1) % DEPTH;
+         this.slots[this.head] = order;
+         if (this.size < DEPTH)
+            ++this.size;
+      }
+
+      synchronized void setStatus(int orderID, String orderStatus, int version) {
+         for (int i = 0; i < this.size; ++i) {
+            OrderSummary order = this.slots[i];
+            if (order.getOrderID() == orderID)
+               this.slots[i] = order.withStatus(orderStatus, version);
+         }//end for
+      }
+
+      synchronized List<OrderSummary> newestFirst() {
+         List<OrderSummary> orders = new ArrayList<OrderSummary>(this.size);
+         for (int i = 0; i < this.size; ++i)
+            orders.add(this.slots[(this.head - i + DEPTH) % DEPTH]);
+         return orders;
+      }
+   }//end Ring
+
+   /*
+    * The loads of one user's ring in flight and the writes made to that
+    * user's orders while they run; a load that overlaps a write is not cached.
+    **/
+   private static final class Load {
+      int loaders;
+      long writes;
+   }//end Load
+
+   private final PizzaStore _esql;
+   private final long _ttlMillis;
+   private final LinkedHashMap<String, Ring> _rings;
+
+   // only users being loaded are here, so writes for everyone else cost nothing
+   private final Map<String, Load> _loads = new HashMap<String, Load>();
+
+   /**
+    * @param esql the store missing users are loaded through
+    * @param maxUsers most users held at once
+    * @param ttlMillis how long a loaded ring is trusted
+    */
+   public RecentOrdersCache(PizzaStore esql, final int maxUsers, long ttlMillis) {
+      this._esql = esql;
+      this._ttlMillis = ttlMillis;
+      this._rings = new LinkedHashMap<String, Ring>(16, 0.75f, true) {
+         protected boolean removeEldestEntry(Map.Entry<String, Ring> eldest) {
+            return size() > maxUsers;
+         }
+      };
+   }//end RecentOrdersCache
+
+   /**
+    * @param login the user
+    * @return the user's newest orders, newest first
+    * @throws java.sql.SQLException when the orders have to be loaded and cannot be
+    */
+   public List<OrderSummary> get(String login) throws SQLException {
+      long now = System.currentTimeMillis();
+      Ring ring;
+      synchronized (this) {
+         ring = this._rings.get(login);
+      }//end synchronized
+      if (ring != null && now - ring.loadedAt < this._ttlMillis)
+         return ring.newestFirst();
+
+      Load load;
+      long stamp;
+      synchronized (this) {
+         load = this._loads.get(login);
+         if (load == null) {
+            load = new Load();
+            this._loads.put(login, load);
+         }//end if
+         ++load.loaders;
+         stamp = load.writes;
+      }//end synchronized
+      List<OrderSummary> orders = null;
+      try {
+         orders = this._esql.queryForList(Queries.USER_ORDERS_FIRST_PAGE, OrderSummary.MAPPER, login, DEPTH);
+      } finally {
+         synchronized (this) {
+            // a write that raced with the load may be missing from what was read
+            if (orders != null && stamp == load.writes)
+               this._rings.put(login, new Ring(orders, now));
+            if (--load.loaders == 0)
+               this._loads.remove(login);
+         }//end synchronized
+      }//end try
+      return orders;
+   }//end get
+
+   /**
+    * Records an order that has just been committed.
+    *
+    * @param order the new order
+    */
+   public void orderPlaced(OrderSummary order) {
+      Ring ring;
+      synchronized (this) {
+         wrote(order.getLogin());
+         ring = this._rings.get(order.getLogin());
+      }//end synchronized
+      // users without a ring pick the order up when they are loaded
+      if (ring != null)
+         ring.add(order);
+   }//end orderPlaced
+
+   /**
+    * Records a committed status change.
+    *
+    * @param login the customer who placed the order
+    * @param orderID the order
+    * @param orderStatus the new status
+    * @param version the version the change wrote
+    */
+   public void statusChanged(String login, int orderID, String orderStatus, int version) {
+      Ring ring;
+      synchronized (this) {
+         wrote(login);
+         ring = this._rings.get(login);
+      }//end synchronized
+      if (ring != null)
+         ring.setStatus(orderID, orderStatus, version);
+   }//end statusChanged
+
+   // caller holds the lock
+   private void wrote(String login) {
+      Load load = this._loads.get(login);
+      if (load != null)
+         ++load.writes;
+   }//end wrote
+
+}//end RecentOrdersCache
@@ -0,0 +1,270 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.io.PrintStream;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Renders a result set as text.  Rows are formatted into a reusable buffer
+ * and written out one page at a time, so a listing costs one console write
+ * per page instead of one per cell.  Supports tab separated, comma
+ * separated and fixed width output and an optional row limit.
+ *
+ */
+public class ResultPrinter {
+
+   public enum Format { TSV, CSV, FIXED }
+
+   // widest a fixed width column is allowed to grow
+   private static final int MAX_FIXED_WIDTH = 40;
+
+   private final Format _format;
+   private final int _pageSize;
+   private final long _limit;
+   private final PrintStream _out;
+
+   // reused across pages and calls
+   private final StringBuilder _buffer = new StringBuilder(16 * 1024);
+   private String[][] _page = new String[0][];
+   private int[] _widths = new int[0];
+
+   /**
+    * @param format the output format
+    * @param pageSize number of rows formatted before each write
+    * @param limit maximum number of rows printed, 0 for no limit
+    * @param out where the rendered pages are written
+    */
+   public ResultPrinter(Format format, int pageSize, long limit, PrintStream out) {
+      if (pageSize < 1)
+         throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+      this._format = format;
+      this._pageSize = pageSize;
+      this._limit = limit;
+      this._out = out;
+   }//end ResultPrinter
+
+   /**
+    * @return a printer writing tab separated pages of 100 rows to standard out
+    */
+   public static ResultPrinter defaults() {
+      return new ResultPrinter(Format.TSV, 100, 0, System.out);
+   }//end defaults
+
+   /**
+    * Builds a printer from command line options of the form
+    * --format=tsv|csv|fixed, --page-size=N and --limit=N.  Unknown options
+    * are rejected.
+    *
+    * @param options the command line options
+    * @return the configured printer
+    */
+   public static ResultPrinter fromOptions(String[] options) {
+      Format format = Format.TSV;
+      int pageSize = 100;
+      long limit = 0;
+      for (String option : options) {
+         if (option.startsWith("--format="))
+            format = Format.valueOf(option.substring("--format=".length()).toUpperCase());
+         else if (option.startsWith("--page-size="))
+            pageSize = Integer.parseInt(option.substring("--page-size=".length()));
+         else if (option.startsWith("--limit="))
+            limit = Long.parseLong(option.substring("--limit=".length()));
+         else
+            throw new IllegalArgumentException("Unknown option: " + option);
+      }//end for
+      return new ResultPrinter(format, pageSize, limit, System.out);
+   }//end fromOptions
+
+   // fills the next row into the given array, false when there are no more
+   private interface RowSource {
+      boolean next(String[] row) throws SQLException;
+   }//end RowSource
+
+   /**
+    * Prints every row of the result set, up to the configured limit.  The
+    * header is only printed when there is at least one row.
+    *
+    * @param rs the result set to print, positioned before the first row
+    * @return the number of rows printed
+    * @throws java.sql.SQLException when a column cannot be read
+    */
+   public synchronized int print(final ResultSet rs) throws SQLException {
+      ResultSetMetaData rsmd = rs.getMetaData();
+      int numCol = rsmd.getColumnCount();
+      String[] header = new String[numCol];
+      for (int i = 0; i < numCol; ++i)
+         header[i] = rsmd.getColumnName(i + 1);
+      return print(header, row -> {
+         if (!rs.next())
+            return false;
+         for (int i = 0; i < row.length; ++i)
+            row[i] = rs.getString(i + 1);
+         return true;
+      });
+   }//end print
+
+   /**
+    * Prints rows that are already in memory, up to the configured limit.
+    *
+    * @param header the column names
+    * @param rows the rows, each with one value per column
+    * @return the number of rows printed
+    */
+   public synchronized int print(String[] header, final List<String[]> rows) {
+      final Iterator<String[]> it = rows.iterator();
+      try {
+         return print(header, row -> {
+            if (!it.hasNext())
+               return false;
+            String[] values = it.next();
+            System.arraycopy(values, 0, row, 0, row.length);
+            return true;
+         });
+      } catch (SQLException e) {
+         // in-memory rows never raise SQLException
+         throw new IllegalStateException(e);
+      }//end try
+   }//end print
+
+   private int print(String[] header, RowSource source) throws SQLException {
+      int numCol = header.length;
+      ensureCapacity(numCol);
+      Arrays.fill(this._widths, 0);
+
+      int rowCount = 0;
+      int inPage = 0;
+      boolean headerPending = true;
+      while ((this._limit == 0 || rowCount < this._limit) && source.next(this._page[inPage])) {
+         ++inPage;
+         ++rowCount;
+         if (inPage == this._pageSize) {
+            flushPage(header, inPage, headerPending);
+            headerPending = false;
+            inPage = 0;
+         }//end if
+      }//end while
+      if (inPage > 0)
+         flushPage(header, inPage, headerPending);
+      return rowCount;
+   }//end print
+
+   /*
+    * Formats the buffered rows of the current page and writes them in one go.
+    **/
+   private void flushPage(String[] header, int rows, boolean withHeader) {
+      StringBuilder sb = this._buffer;
+      sb.setLength(0);
+      // later pages are cut to the widths of the first, so every page lines up
+      if (this._format == Format.FIXED && withHeader)
+         measure(header, rows);
+      if (withHeader)
+         appendRow(sb, header);
+      for (int r = 0; r < rows; ++r)
+         appendRow(sb, this._page[r]);
+      this._out.append(sb);
+      this._out.flush();
+   }//end flushPage
+
+   private void appendRow(StringBuilder sb, String[] row) {
+      int numCol = row.length;
+      for (int i = 0; i < numCol; ++i) {
+         String value = row[i];
+         switch (this._format) {
+            case TSV:
+               sb.append(value).append('\t');
+               break;
+            case CSV:
+               if (i > 0)
+                  sb.append(',');
+               appendCsv(sb, value);
+               break;
+            case FIXED:
+               if (i > 0)
+                  sb.append(" | ");
+               appendFixed(sb, value, this._widths[i]);
+               break;
+         }//end switch
+      }//end for
+      sb.append('\n');
+   }//end appendRow
+
+   private static void appendCsv(StringBuilder sb, String value) {
+      if (value == null)
+         return;
+      boolean quote = false;
+      for (int i = 0, n = value.length(); i < n && !quote; ++i) {
+         char c = value.charAt(i);
+         quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+      }//end for
+      if (!quote) {
+         sb.append(value);
+         return;
+      }//end if
+      sb.append('"');
+      for (int i = 0, n = value.length(); i < n; ++i) {
+         char c = value.charAt(i);
+         if (c == '"')
+            sb.append('"');
+         sb.append(c);
+      }//end for
+      sb.append('"');
+   }//end appendCsv
+
+   private static void appendFixed(StringBuilder sb, String value, int width) {
+      if (value == null)
+         value = "";
+      // char(n) columns come back blank padded, which would defeat the layout
+      int end = value.length();
+      while (end > 0 && value.charAt(end - 1) == ' ')
+         --end;
+      if (end > width) {
+         sb.append(value, 0, width - 1).append('~');
+         return;
+      }//end if
+      sb.append(value, 0, end);
+      for (int i = end; i < width; ++i)
+         sb.append(' ');
+   }//end appendFixed
+
+   /*
+    * Sizes the fixed width columns to fit the header and the rows of the
+    * first page.  Wider values on later pages are truncated by appendFixed().
+    **/
+   private void measure(String[] header, int rows) {
+      for (int i = 0; i < header.length; ++i) {
+         int w = Math.max(1, header[i].length());
+         for (int r = 0; r < rows; ++r) {
+            String value = this._page[r][i];
+            if (value != null) {
+               int end = value.length();
+               while (end > 0 && value.charAt(end - 1) == ' ')
+                  --end;
+               w = Math.max(w, end);
+            }//end if
+         }//end for
+         this._widths[i] = Math.min(w, MAX_FIXED_WIDTH);
+      }//end for
+   }//end measure
+
+   private void ensureCapacity(int numCol) {
+      if (this._page.length < this._pageSize || this._widths.length < numCol || this._page[0].length != numCol) {
+         this._page = new String[this._pageSize][numCol];
+         this._widths = new int[numCol];
+      }//end if
+   }//end ensureCapacity
+
+}//end ResultPrinter
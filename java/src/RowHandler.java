@@ -0,0 +1,31 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Callback invoked once per row by PizzaStore.forEachRow.  The result set
+ * is positioned on the current row and must not be advanced or closed by
+ * the handler.
+ *
+ */
+public interface RowHandler {
+
+   /**
+    * @param rs the result set positioned on the current row
+    * @return true to keep reading, false to stop and close the cursor
+    * @throws java.sql.SQLException when a column cannot be read
+    */
+   boolean handle(ResultSet rs) throws SQLException;
+
+}//end RowHandler
@@ -0,0 +1,32 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Decodes the current row of a result set into a typed value.  Mappers read
+ * columns by position, matching the select list of the Query they are used
+ * with, and use the typed getters (getInt, Columns.getCents, ...) instead of
+ * going through getString.
+ *
+ */
+public interface RowMapper<T> {
+
+   /**
+    * @param rs the result set positioned on the row to decode
+    * @return the decoded value
+    * @throws java.sql.SQLException when a column cannot be read
+    */
+   T map(ResultSet rs) throws SQLException;
+
+}//end RowMapper
@@ -0,0 +1,78 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+/**
+ * The authenticated user of a PizzaStore session.  LogIn reads the user's
+ * row once and keeps it here, so authorization checks and the profile view
+ * are answered from memory instead of querying Users again per action.
+ *
+ */
+public class Session {
+
+   // decodes a row of Queries.LOGIN
+   public static final RowMapper<Session> MAPPER = rs -> new Session(
+      rs.getString(1), Columns.getTrimmed(rs, 2), rs.getString(3), rs.getString(4));
+
+   private final String _login;
+   private volatile String _role;
+   private volatile String _favoriteItems;
+   private volatile String _phoneNum;
+
+   public Session(String login, String role, String favoriteItems, String phoneNum) {
+      this._login = login;
+      this._role = role;
+      this._favoriteItems = favoriteItems;
+      this._phoneNum = phoneNum;
+   }//end Session
+
+   public String getLogin() {
+      return this._login;
+   }
+
+   public String getRole() {
+      return this._role;
+   }
+
+   public String getFavoriteItems() {
+      return this._favoriteItems;
+   }
+
+   public String getPhoneNum() {
+      return this._phoneNum;
+   }
+
+   public boolean isCustomer() {
+      return "customer".equalsIgnoreCase(this._role);
+   }
+
+   public boolean isDriver() {
+      return "driver".equalsIgnoreCase(this._role);
+   }
+
+   public boolean isManager() {
+      return "manager".equalsIgnoreCase(this._role);
+   }
+
+   // the setters keep the session in step with updates the user makes
+   void setRole(String role) {
+      this._role = role == null ? null : role.trim();
+   }
+
+   void setFavoriteItems(String favoriteItems) {
+      this._favoriteItems = favoriteItems;
+   }
+
+   void setPhoneNum(String phoneNum) {
+      this._phoneNum = phoneNum;
+   }
+
+}//end Session
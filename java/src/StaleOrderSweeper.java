@@ -0,0 +1,222 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Marks orders incomplete that are still active a given number of days
+ * after they were placed.  The sweep walks the foodorderTimestamp index in
+ * small chunks from a high-water mark saved in SweepMark, so each run only
+ * looks at orders that aged past the cutoff since the last one.  Every chunk
+ * is its own short statement that locks at most one chunk of rows, and the
+ * sweep sleeps between chunks to stay under a rows per second budget, so
+ * aging never holds long locks or leaves a burst of dead rows for vacuum.
+ *
+ * Orders are moved with PizzaStore.transitionOrders(), so an order that was
+ * completed or cancelled meanwhile is left alone, and several processes may
+ * sweep at once without harm.
+ *
+ */
+public class StaleOrderSweeper {
+
+   // the row the high-water mark is saved under
+   private static final String SWEEP = "staleOrders";
+
+   // the last order a sweep looked at
+   static final class Mark {
+      final Timestamp orderTimestamp;
+      final int orderID;
+
+      Mark(Timestamp orderTimestamp, int orderID) {
+         this.orderTimestamp = orderTimestamp;
+         this.orderID = orderID;
+      }
+   }//end Mark
+
+   /*
+    * The statements a sweep runs, so the chunk and mark logic can be tested
+    * without a database.
+    **/
+   interface Orders {
+      Mark loadMark() throws SQLException;
+
+      // the next chunk of orders older than maxAgeDays after the mark, or from the start when it is null
+      List<OrderSummary> chunk(Mark after, int maxAgeDays, int chunkSize) throws SQLException;
+
+      int markIncomplete(Map<Integer, Integer> orders) throws SQLException;
+
+      void saveMark(Mark mark) throws SQLException;
+   }//end Orders
+
+   // the sweep's statements against a store
+   private static final class StoreOrders implements Orders {
+      private final PizzaStore _esql;
+
+      StoreOrders(PizzaStore esql) {
+         this._esql = esql;
+      }
+
+      public Mark loadMark() throws SQLException {
+         return this._esql.queryForObject(Queries.SWEEP_MARK, rs -> new Mark(rs.getTimestamp(1), rs.getInt(2)), SWEEP);
+      }
+
+      public List<OrderSummary> chunk(Mark after, int maxAgeDays, int chunkSize) throws SQLException {
+         return after == null
+            ? this._esql.queryForList(Queries.SWEEP_FIRST_CHUNK, OrderSummary.MAPPER, maxAgeDays, chunkSize)
+            : this._esql.queryForList(Queries.SWEEP_NEXT_CHUNK, OrderSummary.MAPPER,
+                                      after.orderTimestamp, after.orderID, maxAgeDays, chunkSize);
+      }
+
+      public int markIncomplete(Map<Integer, Integer> orders) throws SQLException {
+         return this._esql.transitionOrders(orders, OrderStatus.INCOMPLETE).size();
+      }
+
+      public void saveMark(Mark mark) throws SQLException {
+         this._esql.executeUpdate(Queries.SAVE_SWEEP_MARK, SWEEP, mark.orderTimestamp, mark.orderID);
+      }
+   }//end StoreOrders
+
+   private final PizzaStore _esql;
+   private final Orders _orders;
+   private final int _maxAgeDays;
+   private final int _chunkSize;
+   private final int _rowsPerSecond;
+   private final long _intervalMillis;
+
+   private final AtomicLong _scanned = new AtomicLong();
+   private final AtomicLong _marked = new AtomicLong();
+
+   private ScheduledExecutorService _timer;
+
+   /**
+    * @param esql the store whose orders are swept
+    * @param maxAgeDays days after which an active order is marked incomplete
+    * @param chunkSize orders read and updated per statement
+    * @param rowsPerSecond most orders scanned per second
+    * @param intervalMillis time between the end of one sweep and the start of the next
+    */
+   public StaleOrderSweeper(PizzaStore esql, int maxAgeDays, int chunkSize, int rowsPerSecond, long intervalMillis) {
+      this(esql, new StoreOrders(esql), maxAgeDays, chunkSize, rowsPerSecond, intervalMillis);
+   }//end StaleOrderSweeper
+
+   StaleOrderSweeper(PizzaStore esql, Orders orders, int maxAgeDays, int chunkSize, int rowsPerSecond,
+                     long intervalMillis) {
+      if (maxAgeDays < 1 || chunkSize < 1 || rowsPerSecond < 1)
+         throw new IllegalArgumentException("maxAgeDays, chunkSize and rowsPerSecond must be positive");
+      this._esql = esql;
+      this._orders = orders;
+      this._maxAgeDays = maxAgeDays;
+      this._chunkSize = chunkSize;
+      this._rowsPerSecond = rowsPerSecond;
+      this._intervalMillis = intervalMillis;
+   }//end StaleOrderSweeper
+
+   /**
+    * Starts sweeping every interval, the first time one interval from now.
+    */
+   public synchronized void start() {
+      if (this._timer != null)
+         return;
+      this._timer = Executors.newSingleThreadScheduledExecutor(r -> {
+         Thread t = new Thread(r, "stale-order-sweeper");
+         t.setDaemon(true);
+         return t;
+      });
+      this._timer.scheduleWithFixedDelay(this::run, this._intervalMillis, this._intervalMillis, TimeUnit.MILLISECONDS);
+   }//end start
+
+   /**
+    * Stops sweeping; a sweep in progress stops after its current chunk.
+    */
+   public synchronized void close() {
+      if (this._timer != null)
+         this._timer.shutdownNow();
+      this._timer = null;
+   }//end close
+
+   /**
+    * @return the number of orders looked at so far
+    */
+   public long getScanned() {
+      return this._scanned.get();
+   }
+
+   /**
+    * @return the number of orders marked incomplete so far
+    */
+   public long getMarked() {
+      return this._marked.get();
+   }
+
+   /**
+    * Sweeps from the saved mark up to the orders that are not old enough
+    * yet, saving the mark after every chunk.
+    *
+    * @return the number of orders marked incomplete
+    * @throws java.sql.SQLException when a chunk cannot be read or updated
+    * @throws java.lang.InterruptedException when interrupted between chunks
+    */
+   public int sweep() throws SQLException, InterruptedException {
+      Mark mark = this._orders.loadMark();
+      long nanosPerRow = TimeUnit.SECONDS.toNanos(1) / this._rowsPerSecond;
+      int marked = 0;
+      while (true) {
+         long start = System.nanoTime();
+         List<OrderSummary> chunk = this._orders.chunk(mark, this._maxAgeDays, this._chunkSize);
+         if (chunk.isEmpty())
+            break;
+
+         // any version: an order that moved on meanwhile but is still active is just as stale
+         Map<Integer, Integer> stale = new LinkedHashMap<Integer, Integer>();
+         for (OrderSummary order : chunk) {
+            OrderStatus status = OrderStatus.parse(order.getOrderStatus());
+            if (status != null && !status.isFinal())
+               stale.put(order.getOrderID(), null);
+         }//end for
+         int moved = stale.isEmpty() ? 0 : this._orders.markIncomplete(stale);
+         marked += moved;
+         this._marked.addAndGet(moved);
+         this._scanned.addAndGet(chunk.size());
+
+         OrderSummary last = chunk.get(chunk.size() - 1);
+         mark = new Mark(last.getOrderTimestamp(), last.getOrderID());
+         this._orders.saveMark(mark);
+         if (chunk.size() < this._chunkSize)
+            break;
+
+         long left = chunk.size() * nanosPerRow - (System.nanoTime() - start);
+         if (left > 0)
+            TimeUnit.NANOSECONDS.sleep(left);
+      }//end while
+      return marked;
+   }//end sweep
+
+   private void run() {
+      try {
+         sweep();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      } catch (SQLException | RuntimeException e) {
+         // the next run starts again from the saved mark
+         this._esql.backgroundFailed("Stale order sweep", e);
+      }//end try
+   }//end run
+
+}//end StaleOrderSweeper
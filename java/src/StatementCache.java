@@ -0,0 +1,149 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A per-connection LRU cache of prepared statements keyed by SQL text.
+ * Statements are prepared the first time a query runs on a connection and
+ * reused afterwards; once a statement has been executed often enough it is
+ * switched to a server-side prepared plan so Postgres stops re-planning it.
+ *
+ * A cache belongs to exactly one pooled connection and is only touched by
+ * the thread that currently borrows it, so it needs no locking.  Hit, miss
+ * and eviction counters are shared by every cache of a pool.
+ *
+ */
+public class StatementCache {
+
+   /**
+    * Counters aggregated over every statement cache of a pool.
+    */
+   public static class Stats {
+      final AtomicLong hits = new AtomicLong();
+      final AtomicLong misses = new AtomicLong();
+      final AtomicLong evictions = new AtomicLong();
+
+      public long getHits() { return this.hits.get(); }
+      public long getMisses() { return this.misses.get(); }
+      public long getEvictions() { return this.evictions.get(); }
+
+      public String toString() {
+         long h = this.hits.get();
+         long m = this.misses.get();
+         return String.format("hits=%d misses=%d evictions=%d hitRatio=%.3f",
+                              h, m, this.evictions.get(), h + m == 0 ? 0.0 : (double) h / (h + m));
+      }
+   }//end Stats
+
+   // a cached statement and how often it has been handed out
+   private static class Entry {
+      final PreparedStatement stmt;
+      int uses;
+
+      Entry(PreparedStatement stmt) {
+         this.stmt = stmt;
+      }
+   }//end Entry
+
+   private final Connection _connection;
+   private final int _serverPrepareThreshold;
+   private final Stats _stats;
+   private final LinkedHashMap<String, Entry> _entries;
+
+   /**
+    * @param connection the connection statements are prepared on
+    * @param capacity maximum number of statements kept open
+    * @param serverPrepareThreshold executions after which a statement is
+    *        server-side prepared, 0 to prepare on first use
+    * @param stats counters shared with the other caches of the pool
+    */
+   public StatementCache(Connection connection, final int capacity, int serverPrepareThreshold, Stats stats) {
+      this._connection = connection;
+      this._serverPrepareThreshold = serverPrepareThreshold;
+      this._stats = stats;
+      this._entries = new LinkedHashMap<String, Entry>(capacity * 2, 0.75f, true) {
+         protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() <= capacity)
+               return false;
+            closeQuietly(eldest.getValue().stmt);
+            StatementCache.this._stats.evictions.incrementAndGet();
+            return true;
+         }
+      };
+   }//end StatementCache
+
+   /**
+    * Returns the prepared statement for the given SQL text, preparing it on
+    * a miss.  The statement stays owned by the cache: callers clear its
+    * parameters by binding new ones and must not close it.
+    *
+    * @param sql the parameterized SQL text
+    * @return a prepared statement ready for binding
+    * @throws java.sql.SQLException when the statement cannot be prepared
+    */
+   public PreparedStatement prepare(String sql) throws SQLException {
+      Entry e = this._entries.get(sql);
+      if (e == null) {
+         this._stats.misses.incrementAndGet();
+         e = new Entry(this._connection.prepareStatement(sql));
+         this._entries.put(sql, e);
+      } else {
+         this._stats.hits.incrementAndGet();
+      }//end if
+      if (++e.uses == this._serverPrepareThreshold + 1)
+         useServerPrepare(e.stmt);
+      return e.stmt;
+   }//end prepare
+
+   /**
+    * Closes every cached statement.
+    */
+   public void closeAll() {
+      Iterator<Entry> it = this._entries.values().iterator();
+      while (it.hasNext()) {
+         closeQuietly(it.next().stmt);
+         it.remove();
+      }//end while
+   }//end closeAll
+
+   /**
+    * @return the number of statements currently cached
+    */
+   public int size() {
+      return this._entries.size();
+   }//end size
+
+   private static void useServerPrepare(PreparedStatement stmt) {
+      try {
+         if (stmt instanceof org.postgresql.PGStatement)
+            ((org.postgresql.PGStatement) stmt).setUseServerPrepare(true);
+      } catch (SQLException e) {
+         // older servers cannot prepare; keep using client-side statements.
+      }//end try
+   }//end useServerPrepare
+
+   private static void closeQuietly(PreparedStatement stmt) {
+      try {
+         stmt.close();
+      } catch (SQLException e) {
+         // ignored.
+      }//end try
+   }//end closeQuietly
+
+}//end StatementCache
@@ -0,0 +1,86 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+/**
+ * One row of the Store table.
+ *
+ */
+public final class Store {
+
+   // column names in the order toRow() returns them
+   public static final String[] HEADER = { "storeid", "address", "city", "state", "isopen", "reviewscore" };
+
+   // decodes a row of Queries.ALL_STORES
+   public static final RowMapper<Store> MAPPER = rs -> {
+      double score = rs.getDouble(6);
+      if (rs.wasNull())
+         score = Double.NaN;
+      return new Store(rs.getInt(1), rs.getString(2), Columns.getTrimmed(rs, 3), Columns.getTrimmed(rs, 4),
+                       "yes".equalsIgnoreCase(Columns.getTrimmed(rs, 5)), score);
+   };
+
+   private final int _storeID;
+   private final String _address;
+   private final String _city;
+   private final String _state;
+   private final boolean _open;
+   private final double _reviewScore;
+
+   /**
+    * @param reviewScore the score, NaN when the store has none
+    */
+   public Store(int storeID, String address, String city, String state, boolean open, double reviewScore) {
+      this._storeID = storeID;
+      this._address = address;
+      this._city = city;
+      this._state = state;
+      this._open = open;
+      this._reviewScore = reviewScore;
+   }//end Store
+
+   public int getStoreID() {
+      return this._storeID;
+   }
+
+   public String getAddress() {
+      return this._address;
+   }
+
+   public String getCity() {
+      return this._city;
+   }
+
+   public String getState() {
+      return this._state;
+   }
+
+   public boolean isOpen() {
+      return this._open;
+   }
+
+   /**
+    * @return the review score, NaN when the store has none
+    */
+   public double getReviewScore() {
+      return this._reviewScore;
+   }
+
+   /**
+    * @return the store as printable values, in HEADER order
+    */
+   public String[] toRow() {
+      return new String[] { Integer.toString(this._storeID), this._address, this._city, this._state,
+                            this._open ? "yes" : "no",
+                            Double.isNaN(this._reviewScore) ? null : Double.toString(this._reviewScore) };
+   }//end toRow
+
+}//end Store
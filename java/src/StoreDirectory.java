@@ -0,0 +1,181 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Process-local directory of the Store table, indexed by state and city.
+ * Stores change rarely and are never written by this program, so the
+ * directory is loaded once and reloaded when it is older than the refresh
+ * interval; readers always see an immutable snapshot.
+ *
+ */
+public class StoreDirectory {
+
+   /**
+    * An immutable, indexed snapshot of the stores.
+    */
+   public static final class Directory {
+      private final List<Store> _stores;
+      private final Map<Integer, Store> _byID;
+
+      // normalized state, then normalized city, to stores in storeID order
+      private final TreeMap<String, TreeMap<String, List<Store>>> _byPlace;
+
+      // every store, best reviewed first
+      private final List<Store> _byScore;
+
+      Directory(List<Store> stores) {
+         this._stores = Collections.unmodifiableList(stores);
+         this._byID = new HashMap<Integer, Store>(stores.size() * 2);
+         this._byPlace = new TreeMap<String, TreeMap<String, List<Store>>>();
+         for (Store store : stores) {
+            this._byID.put(store.getStoreID(), store);
+            TreeMap<String, List<Store>> cities = this._byPlace.get(normalize(store.getState()));
+            if (cities == null)
+               this._byPlace.put(normalize(store.getState()), cities = new TreeMap<String, List<Store>>());
+            List<Store> inCity = cities.get(normalize(store.getCity()));
+            if (inCity == null)
+               cities.put(normalize(store.getCity()), inCity = new ArrayList<Store>());
+            inCity.add(store);
+         }//end for
+         List<Store> byScore = new ArrayList<Store>(stores);
+         // unscored stores go last
+         byScore.sort((a, b) -> Double.compare(score(b), score(a)));
+         this._byScore = Collections.unmodifiableList(byScore);
+      }
+
+      /**
+       * @return every store, in storeID order
+       */
+      public List<Store> getStores() {
+         return this._stores;
+      }
+
+      /**
+       * @param storeID the store
+       * @return the store, or null when there is none with that id
+       */
+      public Store get(int storeID) {
+         return this._byID.get(storeID);
+      }
+
+      /**
+       * @param state the state, ignoring case; null or empty for every state
+       * @param city the city, ignoring case; null or empty for every city of the state
+       * @param openOnly true to leave out closed stores
+       * @return the matching stores, grouped by state and city
+       */
+      public List<Store> find(String state, String city, boolean openOnly) {
+         List<Store> found = new ArrayList<Store>();
+         if (isBlank(state)) {
+            for (TreeMap<String, List<Store>> cities : this._byPlace.values())
+               for (List<Store> stores : cities.values())
+                  addAll(found, stores, openOnly);
+            return found;
+         }//end if
+         TreeMap<String, List<Store>> cities = this._byPlace.get(normalize(state));
+         if (cities == null)
+            return found;
+         if (isBlank(city)) {
+            for (List<Store> stores : cities.values())
+               addAll(found, stores, openOnly);
+         } else {
+            List<Store> stores = cities.get(normalize(city));
+            if (stores != null)
+               addAll(found, stores, openOnly);
+         }//end if
+         return found;
+      }
+
+      /**
+       * @param n the most stores returned
+       * @param state the state, ignoring case; null or empty for every state
+       * @param openOnly true to leave out closed stores
+       * @return the best reviewed stores, best first
+       */
+      public List<Store> top(int n, String state, boolean openOnly) {
+         List<Store> found = new ArrayList<Store>(n);
+         String wanted = isBlank(state) ? null : normalize(state);
+         for (int i = 0; i < this._byScore.size() && found.size() < n; ++i) {
+            Store store = this._byScore.get(i);
+            if ((!openOnly || store.isOpen()) && (wanted == null || wanted.equals(normalize(store.getState()))))
+               found.add(store);
+         }//end for
+         return found;
+      }
+
+      private static void addAll(List<Store> found, List<Store> stores, boolean openOnly) {
+         for (Store store : stores)
+            if (!openOnly || store.isOpen())
+               found.add(store);
+      }
+
+      private static double score(Store store) {
+         return Double.isNaN(store.getReviewScore()) ? Double.NEGATIVE_INFINITY : store.getReviewScore();
+      }
+   }//end Directory
+
+   private final PizzaStore _esql;
+   private final long _refreshMillis;
+   private volatile Directory _directory;
+   private volatile long _loadedAt;
+
+   /**
+    * @param esql the store the directory is read through
+    * @param refreshMillis how long a loaded directory is used before it is reloaded
+    */
+   public StoreDirectory(PizzaStore esql, long refreshMillis) {
+      this._esql = esql;
+      this._refreshMillis = refreshMillis;
+   }//end StoreDirectory
+
+   /**
+    * @return the current directory, loading it first when it is missing or stale
+    * @throws java.sql.SQLException when the directory has to be loaded and cannot be
+    */
+   public Directory get() throws SQLException {
+      Directory directory = this._directory;
+      if (directory == null || System.currentTimeMillis() - this._loadedAt >= this._refreshMillis)
+         directory = refresh();
+      return directory;
+   }//end get
+
+   private synchronized Directory refresh() throws SQLException {
+      long now = System.currentTimeMillis();
+      // another thread may have reloaded while this one waited for the lock
+      if (this._directory != null && now - this._loadedAt < this._refreshMillis)
+         return this._directory;
+      // streamed, so only the directory itself is held, not the driver's copy of the rows
+      final List<Store> stores = new ArrayList<Store>();
+      this._esql.forEachRow(Queries.ALL_STORES, rs -> stores.add(Store.MAPPER.map(rs)));
+      this._directory = new Directory(stores);
+      this._loadedAt = now;
+      return this._directory;
+   }//end refresh
+
+   private static String normalize(String name) {
+      return name.trim().toLowerCase(Locale.ROOT);
+   }//end normalize
+
+   private static boolean isBlank(String s) {
+      return s == null || s.trim().isEmpty();
+   }//end isBlank
+
+}//end StoreDirectory
@@ -0,0 +1,76 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.util.Objects;
+
+/**
+ * The few assertions the tests in this directory need, so they run with
+ * nothing but the JDK: scripts/test.sh compiles every *Test class and runs
+ * its main method.  A failed check is reported and counted, and done()
+ * exits non-zero when any check failed.
+ *
+ */
+final class Check {
+
+   // something a test expects to throw
+   interface Action {
+      void run() throws Exception;
+   }
+
+   private static int _checks;
+   private static int _failures;
+
+   private Check() {
+   }
+
+   static void equal(Object expected, Object actual, String what) {
+      ++_checks;
+      if (!Objects.equals(expected, actual)) {
+         ++_failures;
+         System.out.println("FAIL " + what + ": expected <" + expected + "> but was <" + actual + ">");
+      }//end if
+   }//end equal
+
+   static void isTrue(boolean condition, String what) {
+      ++_checks;
+      if (!condition) {
+         ++_failures;
+         System.out.println("FAIL " + what);
+      }//end if
+   }//end isTrue
+
+   static void fails(Class<? extends Throwable> expected, String what, Action action) {
+      ++_checks;
+      try {
+         action.run();
+         ++_failures;
+         System.out.println("FAIL " + what + ": expected " + expected.getSimpleName());
+      } catch (Throwable t) {
+         if (!expected.isInstance(t)) {
+            ++_failures;
+            System.out.println("FAIL " + what + ": expected " + expected.getSimpleName() + " but got " + t);
+         }//end if
+      }//end try
+   }//end fails
+
+   /**
+    * Reports the checks of one test class and exits non-zero on failure.
+    *
+    * @param suite the test class
+    */
+   static void done(Class<?> suite) {
+      System.out.println(suite.getName() + ": " + _checks + " checks, " + _failures + " failed");
+      if (_failures > 0)
+         System.exit(1);
+   }//end done
+
+}//end Check
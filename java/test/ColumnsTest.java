@@ -0,0 +1,60 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+
+/**
+ * Tests the money and char(n) decoding of Columns.
+ *
+ */
+public class ColumnsTest {
+
+   public static void main(String[] args) throws Exception {
+      Check.equal("0.00", Columns.formatCents(0), "zero");
+      Check.equal("0.05", Columns.formatCents(5), "cents only");
+      Check.equal("9.99", Columns.formatCents(999), "under ten dollars");
+      Check.equal("12.50", Columns.formatCents(1250), "trailing zero kept");
+      Check.equal("1000000.01", Columns.formatCents(100000001), "large amount");
+      Check.equal("-3.07", Columns.formatCents(-307), "negative amount");
+
+      Check.equal(new BigDecimal("12.50"), Columns.toDecimal(1250), "toDecimal scale 2");
+      Check.equal(1250L, Columns.toDecimal(1250).movePointRight(2).longValue(), "toDecimal round trip");
+
+      ResultSet rs = row(new BigDecimal("10.99"), "entree      ", null);
+      Check.equal(1099L, Columns.getCents(rs, 1), "getCents");
+      Check.equal(0L, Columns.getCents(rs, 3), "getCents of null");
+      Check.equal("entree", Columns.getTrimmed(rs, 2), "getTrimmed");
+      Check.equal(null, Columns.getTrimmed(rs, 3), "getTrimmed of null");
+      Check.done(ColumnsTest.class);
+   }//end main
+
+   /*
+    * A one row result set answering getBigDecimal and getString by column.
+    **/
+   static ResultSet row(final Object... values) {
+      return (ResultSet) Proxy.newProxyInstance(ColumnsTest.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+         (proxy, method, args) -> {
+            Object value = values[(Integer) args[0] - 1];
+            switch (method.getName()) {
+               case "getBigDecimal":
+                  return value;
+               case "getString":
+                  return value == null ? null : value.toString();
+               default:
+                  throw new UnsupportedOperationException(method.getName());
+            }//end switch
+         });
+   }//end row
+
+}//end ColumnsTest
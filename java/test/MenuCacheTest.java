@@ -0,0 +1,61 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests the price and type indexes of a menu snapshot.
+ *
+ */
+public class MenuCacheTest {
+
+   public static void main(String[] args) throws Exception {
+      MenuCache.Menu menu = new MenuCache.Menu(Arrays.asList(
+         item("Pepperoni", "entree      ", 1099),
+         item("Coke", "drinks      ", 199),
+         item("Garlic Bread", "sides       ", 499),
+         item("Sprite", "drinks      ", 199),
+         item("Cheese", "Entree", 899)));
+
+      Check.equal(Arrays.asList(), names(menu.atMost(198)), "atMost below the cheapest");
+      Check.equal(Arrays.asList("Coke", "Sprite"), names(menu.atMost(199)), "atMost includes the bound, ties in table order");
+      Check.equal(Arrays.asList("Coke", "Sprite", "Garlic Bread"), names(menu.atMost(898)), "atMost between prices");
+      Check.equal(Arrays.asList("Coke", "Sprite", "Garlic Bread", "Cheese", "Pepperoni"),
+                  names(menu.atMost(Long.MAX_VALUE)), "atMost above the dearest");
+      Check.equal(Arrays.asList(), names(menu.atMost(-1)), "atMost negative");
+
+      Check.equal(Arrays.asList("Pepperoni", "Cheese"), names(menu.byType("entree")), "byType ignores case and padding");
+      Check.equal(Arrays.asList("Coke", "Sprite"), names(menu.byType("  DRINKS ")), "byType trims the query");
+      Check.equal(Arrays.asList(), names(menu.byType("dessert")), "byType unknown type");
+      Check.fails(UnsupportedOperationException.class, "byType is read only",
+                  () -> menu.byType("drinks").clear());
+
+      MenuCache.Menu empty = new MenuCache.Menu(new ArrayList<MenuItem>());
+      Check.equal(Arrays.asList(), names(empty.atMost(1000)), "atMost of an empty menu");
+      Check.equal(Arrays.asList(), names(empty.byType("drinks")), "byType of an empty menu");
+      Check.done(MenuCacheTest.class);
+   }//end main
+
+   static MenuItem item(String name, String type, long priceCents) {
+      return new MenuItem(name, "", type, priceCents, null);
+   }
+
+   static List<String> names(List<MenuItem> items) {
+      List<String> names = new ArrayList<String>();
+      for (MenuItem item : items)
+         names.add(item.getItemName());
+      return names;
+   }//end names
+
+}//end MenuCacheTest
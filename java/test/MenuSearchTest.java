@@ -0,0 +1,100 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Tests the matching and ranking of the in-memory menu search, and that
+ * the database query it states means the same.
+ *
+ */
+public class MenuSearchTest {
+
+   static final List<MenuItem> ITEMS = Arrays.asList(
+      new MenuItem("Pepperoni Pizza", "dough, cheese, pepperoni", "entree", 1099, "A classic"),
+      new MenuItem("Veggie Pizza", "dough, peppers, olives", "entree", 999, "No cheese, all vegetables"),
+      new MenuItem("Cheese Pizza", "dough, cheese", "entree", 899, null),
+      new MenuItem("Garlic Bread", "bread, garlic, butter", "sides", 499, "Goes well with pizza"),
+      new MenuItem("Coke", "", "drinks", 199, null));
+
+   public static void main(String[] args) throws Exception {
+      MenuSearch search = new MenuSearch(ITEMS);
+
+      Check.equal(Arrays.asList("Cheese Pizza", "Pepperoni Pizza", "Veggie Pizza", "Garlic Bread"),
+                  MenuCacheTest.names(search.search("pizza", 10)),
+                  "name outranks description, ties by name");
+      Check.equal(Arrays.asList("Pepperoni Pizza", "Veggie Pizza"),
+                  MenuCacheTest.names(search.search("pepp", 10)),
+                  "prefix match, exact word outranks prefix");
+      Check.equal(Arrays.asList("Cheese Pizza", "Pepperoni Pizza", "Veggie Pizza"),
+                  MenuCacheTest.names(search.search("cheese pizza", 10)),
+                  "every word must match");
+      Check.equal(Arrays.asList("Garlic Bread"),
+                  MenuCacheTest.names(search.search("pizza without cheese", 10)),
+                  "a word after without is excluded");
+      Check.equal(Arrays.asList("Coke"),
+                  MenuCacheTest.names(search.search("no cheese no pizza", 10)),
+                  "only exclusions, descriptions count too");
+      Check.equal(Arrays.asList("Cheese Pizza", "Pepperoni Pizza"),
+                  MenuCacheTest.names(search.search("Pizza with CHEESE and dough", 2)),
+                  "with is not a negation; limit applies");
+      Check.equal(Arrays.asList(), MenuCacheTest.names(search.search("the", 10)), "stop words alone");
+      Check.equal(Arrays.asList(), MenuCacheTest.names(search.search(null, 10)), "null query");
+
+      Check.equal("pizza:* & !cheese:*", MenuSearch.toTsQuery("Pizza, no cheese!"), "tsquery with exclusion");
+      Check.equal("cheese:* & pizza:*", MenuSearch.toTsQuery("cheese or pizza"), "tsquery requires every word");
+      Check.equal("!olive:*", MenuSearch.toTsQuery("not olive"), "tsquery of only an exclusion");
+      Check.equal("", MenuSearch.toTsQuery("with the"), "tsquery of stop words");
+      Check.equal("x:* & y:* & !z:*", MenuSearch.toTsQuery("'x' | y & !no z:*"), "tsquery never passes operators");
+
+      // the database path: toTsQuery() evaluated against each item's 'simple' tsvector
+      for (String query : new String[] { "pizza", "pizzas", "pepp", "cheese pizza", "pizza with cheese",
+                                         "Pizza, no cheese!", "the works", "well", "no olives", "garlic-bread" })
+         Check.equal(new TreeSet<String>(MenuCacheTest.names(search.search(query, 100))), database(query),
+                     "both paths find the same items for " + query);
+      Check.done(MenuSearchTest.class);
+   }//end main
+
+   /*
+    * The items the itemsSearch query would find.  The 'simple' config splits
+    * and lower cases like MenuSearch.tokenize(), so the document is those
+    * words; a term "w:*" matches a word starting with w, "!w:*" negates it,
+    * and every term of the &-joined query must hold.  The ranking differs
+    * (ts_rank), so only the names found are compared.
+    **/
+   static TreeSet<String> database(String query) {
+      String tsquery = MenuSearch.toTsQuery(query);
+      TreeSet<String> found = new TreeSet<String>();
+      if (tsquery.isEmpty())
+         return found;
+      for (MenuItem item : ITEMS) {
+         List<String> document = MenuSearch.tokenize(item.getItemName() + " " + item.getTypeOfItem() + " "
+                                                     + item.getIngredients() + " "
+                                                     + (item.getDescription() == null ? "" : item.getDescription()));
+         boolean matches = true;
+         for (String term : tsquery.split(" & ")) {
+            boolean negated = term.startsWith("!");
+            String prefix = term.substring(negated ? 1 : 0, term.length() - 2);
+            boolean present = false;
+            for (String word : document)
+               present |= word.startsWith(prefix);
+            matches &= present != negated;
+         }//end for
+         if (matches)
+            found.add(item.getItemName());
+      }//end for
+      return found;
+   }//end database
+
+}//end MenuSearchTest
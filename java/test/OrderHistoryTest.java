@@ -0,0 +1,45 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.sql.Timestamp;
+
+/**
+ * Tests the text form of the order history paging cursor.
+ *
+ */
+public class OrderHistoryTest {
+
+   public static void main(String[] args) throws Exception {
+      Timestamp micros = Timestamp.valueOf("2024-03-09 18:45:07.123456");
+      String text = new OrderHistory.Cursor(micros, 42).encode();
+      Check.equal("2024-03-09 18:45:07.123456|42", text, "encode");
+      Check.equal(text, OrderHistory.Cursor.decode(text).encode(), "round trip keeps microseconds");
+
+      Timestamp whole = Timestamp.valueOf("2024-03-09 18:45:07");
+      text = new OrderHistory.Cursor(whole, 7).encode();
+      Check.equal(text, OrderHistory.Cursor.decode(text).encode(), "round trip of a whole second");
+
+      Timestamp a = Timestamp.valueOf("2024-03-09 18:45:07.123456");
+      Timestamp b = Timestamp.valueOf("2024-03-09 18:45:07.123457");
+      Check.isTrue(!new OrderHistory.Cursor(a, 1).encode().equals(new OrderHistory.Cursor(b, 1).encode()),
+                   "orders a microsecond apart encode differently");
+
+      Check.fails(IllegalArgumentException.class, "no separator",
+                  () -> OrderHistory.Cursor.decode("2024-03-09 18:45:07"));
+      Check.fails(IllegalArgumentException.class, "bad order id",
+                  () -> OrderHistory.Cursor.decode("2024-03-09 18:45:07|x"));
+      Check.fails(IllegalArgumentException.class, "bad timestamp",
+                  () -> OrderHistory.Cursor.decode("yesterday|42"));
+      Check.done(OrderHistoryTest.class);
+   }//end main
+
+}//end OrderHistoryTest
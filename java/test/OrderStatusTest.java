@@ -0,0 +1,52 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+/**
+ * Tests the order status transitions and the literals they are checked
+ * with in the database.
+ *
+ */
+public class OrderStatusTest {
+
+   public static void main(String[] args) throws Exception {
+      Check.isTrue(OrderStatus.PLACED.canBecome(OrderStatus.IN_PROGRESS), "placed to in progress");
+      Check.isTrue(OrderStatus.IN_PROGRESS.canBecome(OrderStatus.OUT_FOR_DELIVERY), "in progress to out for delivery");
+      Check.isTrue(OrderStatus.OUT_FOR_DELIVERY.canBecome(OrderStatus.COMPLETE), "out for delivery to complete");
+      Check.isTrue(!OrderStatus.PLACED.canBecome(OrderStatus.COMPLETE), "no skipping to complete");
+      Check.isTrue(!OrderStatus.OUT_FOR_DELIVERY.canBecome(OrderStatus.IN_PROGRESS), "no moving back");
+      Check.isTrue(!OrderStatus.PLACED.canBecome(OrderStatus.PLACED), "no moving to the same status");
+
+      for (OrderStatus from : OrderStatus.values()) {
+         Check.equal(!from.isFinal(), from.canBecome(OrderStatus.CANCELLED), from + " to cancelled");
+         Check.equal(!from.isFinal(), from.canBecome(OrderStatus.INCOMPLETE), from + " to incomplete");
+         if (from.isFinal())
+            for (OrderStatus to : OrderStatus.values())
+               Check.isTrue(!from.canBecome(to), from + " is final, not to " + to);
+      }//end for
+
+      Check.equal("{}", OrderStatus.PLACED.getSourcesLiteral(), "nothing becomes placed");
+      Check.equal("{\"placed\"}", OrderStatus.IN_PROGRESS.getSourcesLiteral(), "in progress sources");
+      Check.equal("{\"placed\",\"in progress\",\"out for delivery\"}", OrderStatus.CANCELLED.getSourcesLiteral(),
+                  "cancelled sources");
+      for (OrderStatus to : OrderStatus.values())
+         for (OrderStatus from : OrderStatus.values())
+            Check.equal(from.canBecome(to), to.getSourcesLiteral().contains("\"" + from.getLabel() + "\""),
+                        "literal of " + to + " agrees with canBecome from " + from);
+
+      Check.equal(OrderStatus.OUT_FOR_DELIVERY, OrderStatus.parse("  Out For Delivery "), "parse ignores case and padding");
+      Check.equal(null, OrderStatus.parse("delivered"), "parse unknown");
+      Check.equal(null, OrderStatus.parse(null), "parse null");
+      Check.equal("out for delivery", OrderStatus.OUT_FOR_DELIVERY.toString(), "toString is the label");
+      Check.done(OrderStatusTest.class);
+   }//end main
+
+}//end OrderStatusTest
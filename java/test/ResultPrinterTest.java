@@ -0,0 +1,90 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests the output formats, paging and row limit of ResultPrinter.
+ *
+ */
+public class ResultPrinterTest {
+
+   private static final String[] HEADER = { "name", "price" };
+
+   public static void main(String[] args) throws Exception {
+      tsv();
+      csvQuotesOnlyWhenNeeded();
+      fixedPadsAndTrimsBlankPadding();
+      fixedPagesKeepTheFirstPageWidths();
+      limitStopsEarly();
+      headerOnlyWithRows();
+      Check.fails(IllegalArgumentException.class, "unknown option",
+                  () -> ResultPrinter.fromOptions(new String[] { "--colour" }));
+      Check.done(ResultPrinterTest.class);
+   }//end main
+
+   private static void tsv() {
+      Check.equal("name\tprice\t\nCheese Pizza\t9.99\t\n",
+                  render(ResultPrinter.Format.TSV, 10, 0, row("Cheese Pizza", "9.99")), "tsv");
+   }
+
+   private static void csvQuotesOnlyWhenNeeded() {
+      Check.equal("name,price\n\"Cheese, extra\",9.99\n\"say \"\"hi\"\"\",\nplain,1.00\n",
+                  render(ResultPrinter.Format.CSV, 10, 0, row("Cheese, extra", "9.99"),
+                         row("say \"hi\"", null), row("plain", "1.00")), "csv");
+   }
+
+   private static void fixedPadsAndTrimsBlankPadding() {
+      // char(n) values come back blank padded
+      Check.equal("name   | price\nSprite | 1.99 \n",
+                  render(ResultPrinter.Format.FIXED, 10, 0, row("Sprite      ", "1.99")), "fixed");
+   }
+
+   private static void fixedPagesKeepTheFirstPageWidths() {
+      String out = render(ResultPrinter.Format.FIXED, 1, 0, row("Pepsi", "1.99"), row("Buffalo Chicken Pizza", "12.99"));
+      String[] lines = out.split("\n");
+      Check.equal(3, lines.length, "fixed line count");
+      Check.equal("name  | price", lines[0], "fixed header");
+      Check.equal("Pepsi | 1.99 ", lines[1], "fixed first page");
+      // the second page is cut to the first page's widths instead of widening
+      Check.equal("Buff~ | 12.99", lines[2], "fixed later page");
+      for (String line : lines)
+         Check.equal(lines[0].length(), line.length(), "fixed alignment of '" + line + "'");
+   }
+
+   private static void limitStopsEarly() {
+      Check.equal("name\tprice\t\na\t1\t\n",
+                  render(ResultPrinter.Format.TSV, 1, 1, row("a", "1"), row("b", "2")), "limit");
+   }
+
+   private static void headerOnlyWithRows() {
+      Check.equal("", render(ResultPrinter.Format.CSV, 10, 0), "no rows, no header");
+   }
+
+   private static String[] row(String... values) {
+      return values;
+   }
+
+   private static String render(ResultPrinter.Format format, int pageSize, long limit, String[]... rows) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      PrintStream out = new PrintStream(bytes, true);
+      List<String[]> list = new ArrayList<String[]>(Arrays.asList(rows));
+      new ResultPrinter(format, pageSize, limit, out).print(HEADER, list);
+      return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+   }//end render
+
+}//end ResultPrinterTest
@@ -0,0 +1,138 @@
+/*
+ * Template JAVA User Interface
+ * =============================
+ *
+ * Database Management Systems
+ * Department of Computer Science &amp; Engineering
+ * University of California - Riverside
+ *
+ * Target DBMS: 'Postgres'
+ *
+ */
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests how the stale order sweep walks its chunks and keeps its
+ * high-water mark, against an in-memory table of orders.
+ *
+ */
+public class StaleOrderSweeperTest {
+
+   /*
+    * FoodOrder and SweepMark in memory.  Orders placed before the cutoff are
+    * old enough to sweep; the rows are kept in (orderTimestamp, orderID) order
+    * like the foodorderTimestamp index.
+    **/
+   static final class Table implements StaleOrderSweeper.Orders {
+      final List<OrderSummary> rows = new ArrayList<OrderSummary>();
+      Timestamp cutoff;
+      StaleOrderSweeper.Mark saved;
+      final List<Integer> savedIDs = new ArrayList<Integer>();
+      final List<Integer> chunkAfter = new ArrayList<Integer>();
+      boolean failUpdates;
+
+      void add(int orderID, String timestamp, OrderStatus status) {
+         this.rows.add(new OrderSummary(orderID, "alice", 1, 1000, Timestamp.valueOf(timestamp), status.getLabel(), 0));
+         this.rows.sort((a, b) -> {
+            int c = a.getOrderTimestamp().compareTo(b.getOrderTimestamp());
+            return c != 0 ? c : Integer.compare(a.getOrderID(), b.getOrderID());
+         });
+      }
+
+      String status(int orderID) {
+         for (OrderSummary row : this.rows)
+            if (row.getOrderID() == orderID)
+               return row.getOrderStatus();
+         return null;
+      }
+
+      public StaleOrderSweeper.Mark loadMark() {
+         return this.saved;
+      }
+
+      public List<OrderSummary> chunk(StaleOrderSweeper.Mark after, int maxAgeDays, int chunkSize) {
+         this.chunkAfter.add(after == null ? 0 : after.orderID);
+         List<OrderSummary> chunk = new ArrayList<OrderSummary>();
+         for (OrderSummary row : this.rows) {
+            if (!row.getOrderTimestamp().before(this.cutoff) || chunk.size() == chunkSize)
+               break;
+            int c = after == null ? 1 : row.getOrderTimestamp().compareTo(after.orderTimestamp);
+            if (c > 0 || c == 0 && row.getOrderID() > after.orderID)
+               chunk.add(row);
+         }//end for
+         return chunk;
+      }
+
+      public int markIncomplete(Map<Integer, Integer> orders) throws SQLException {
+         if (this.failUpdates)
+            throw new SQLException("lock timeout");
+         int moved = 0;
+         for (int i = 0; i < this.rows.size(); ++i) {
+            OrderSummary row = this.rows.get(i);
+            OrderStatus status = OrderStatus.parse(row.getOrderStatus());
+            if (orders.containsKey(row.getOrderID()) && status.canBecome(OrderStatus.INCOMPLETE)) {
+               this.rows.set(i, row.withStatus(OrderStatus.INCOMPLETE.getLabel(), row.getVersion() + 1));
+               ++moved;
+            }//end if
+         }//end for
+         return moved;
+      }
+
+      public void saveMark(StaleOrderSweeper.Mark mark) {
+         this.saved = mark;
+         this.savedIDs.add(mark.orderID);
+      }
+   }//end Table
+
+   public static void main(String[] args) throws Exception {
+      Table table = new Table();
+      table.add(1, "2024-01-01 10:00:00", OrderStatus.PLACED);
+      table.add(2, "2024-01-01 11:00:00", OrderStatus.COMPLETE);
+      table.add(3, "2024-01-01 12:00:00", OrderStatus.IN_PROGRESS);
+      // same timestamp across the chunk boundary, which the mark must not skip
+      table.add(4, "2024-01-01 12:00:00", OrderStatus.OUT_FOR_DELIVERY);
+      table.add(5, "2024-01-01 13:00:00", OrderStatus.CANCELLED);
+      table.add(6, "2024-01-01 14:00:00", OrderStatus.PLACED);
+      table.add(7, "2024-01-09 09:00:00", OrderStatus.PLACED);
+      table.cutoff = Timestamp.valueOf("2024-01-08 00:00:00");
+
+      StaleOrderSweeper sweeper = new StaleOrderSweeper(null, table, 7, 3, 1000000, 60000L);
+      Check.equal(4, sweeper.sweep(), "active old orders are marked");
+      Check.equal(Arrays.asList(0, 3, 6), table.chunkAfter, "chunks resume after the previous chunk");
+      Check.equal(Arrays.asList(3, 6), table.savedIDs, "mark saved after every chunk");
+      Check.equal("incomplete", table.status(4), "order sharing a timestamp with the mark");
+      Check.equal("complete", table.status(2), "final order left alone");
+      Check.equal("cancelled", table.status(5), "cancelled order left alone");
+      Check.equal("placed", table.status(7), "young order left alone");
+      Check.equal(6L, sweeper.getScanned(), "scanned");
+      Check.equal(4L, sweeper.getMarked(), "marked");
+
+      table.chunkAfter.clear();
+      Check.equal(0, sweeper.sweep(), "nothing new to sweep");
+      Check.equal(Arrays.asList(6), table.chunkAfter, "a new sweep starts at the saved mark");
+
+      table.cutoff = Timestamp.valueOf("2024-01-20 00:00:00");
+      Check.equal(1, sweeper.sweep(), "an order that aged since is swept");
+      Check.equal("incomplete", table.status(7), "aged order marked");
+      Check.equal(7, table.saved.orderID, "mark moved to the aged order");
+
+      table.add(8, "2024-01-10 09:00:00", OrderStatus.PLACED);
+      table.failUpdates = true;
+      Check.fails(SQLException.class, "a failed update fails the sweep", () -> sweeper.sweep());
+      Check.equal(7, table.saved.orderID, "mark not moved past a failed chunk");
+      table.failUpdates = false;
+      Check.equal(1, sweeper.sweep(), "the next sweep retries the failed chunk");
+      Check.equal("incomplete", table.status(8), "retried order marked");
+
+      Check.fails(IllegalArgumentException.class, "chunk size must be positive",
+                  () -> new StaleOrderSweeper(null, table, 7, 0, 1000, 60000L));
+      Check.done(StaleOrderSweeperTest.class);
+   }//end main
+
+}//end StaleOrderSweeperTest
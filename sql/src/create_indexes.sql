@@ -1,4 +1,6 @@
-CREATE INDEX foodorderTimestamp ON FoodOrder USING BTREE(orderTimestamp);
+-- orderID breaks ties for the keyset pages of the order history and the
+-- chunks of StaleOrderSweeper, which walk this index in either direction
+CREATE INDEX foodorderTimestamp ON FoodOrder USING BTREE(orderTimestamp, orderID);
 
 CREATE INDEX itemsInOrderName ON ItemsInOrder USING BTREE(itemName);
 
@@ -6,3 +8,13 @@ CREATE INDEX userRole ON Users USING BTREE(role);
 
 CREATE INDEX itemsPrice ON Items USING BTREE(price);
 
+CREATE INDEX foodorderLoginTimestamp ON FoodOrder USING BTREE(login, orderTimestamp DESC, orderID DESC);
+
+-- type filters compare the trimmed, lower cased type; this matches
+-- MenuCache.normalizeType so WHERE LOWER(TRIM(typeOfItem)) = ? is indexed
+CREATE INDEX itemsType ON Items USING BTREE(LOWER(TRIM(typeOfItem)));
+
+-- menu text search for large catalogs (-Dpizzastore.menu.searchInDatabase);
+-- the expression must match MenuCache.SEARCH_DOCUMENT; the 'simple' config
+-- neither stems nor drops stop words, like the in-memory MenuSearch index
+CREATE INDEX itemsSearch ON Items USING GIN((setweight(to_tsvector('simple', itemName), 'A') || setweight(to_tsvector('simple', typeOfItem || ' ' || ingredients), 'B') || setweight(to_tsvector('simple', COALESCE(description, '')), 'C')));
@@ -3,6 +3,14 @@ DROP TABLE IF EXISTS Items CASCADE;
 DROP TABLE IF EXISTS FoodOrder CASCADE;
 DROP TABLE IF EXISTS Store CASCADE;
 DROP TABLE IF EXISTS ItemsInOrder CASCADE;
+DROP TABLE IF EXISTS SweepMark;
+DROP TYPE IF EXISTS OrderStatus;
+
+-- the order life cycle, kept in step with OrderStatus.java: placed -> in
+-- progress -> out for delivery -> complete, or cancelled on the way;
+-- incomplete marks orders abandoned before they finished.  An enum is
+-- stored in 4 bytes and still reads and writes as its label.
+CREATE TYPE OrderStatus AS ENUM ('placed', 'in progress', 'out for delivery', 'complete', 'cancelled', 'incomplete');
 
 CREATE TABLE Users ( login varchar(50) NOT NULL,
                      password varchar(30) NOT NULL,
@@ -34,7 +42,8 @@ CREATE TABLE FoodOrder ( orderID integer NOT NULL,
                            storeID integer NOT NULL, --placedAt relationship
                            totalPrice decimal(10,2) NOT NULL,
                            orderTimestamp timestamp NOT NULL,
-                           orderStatus char(50),
+                           orderStatus OrderStatus NOT NULL DEFAULT 'placed',
+                           version integer NOT NULL DEFAULT 0, --bumped by every status change
                            PRIMARY KEY(orderID),
                            FOREIGN KEY(login) REFERENCES Users(login)
                            ON DELETE CASCADE,
@@ -42,14 +51,24 @@ CREATE TABLE FoodOrder ( orderID integer NOT NULL,
                            ON DELETE CASCADE
 );
 
-
+-- order ids are handed out by the application in blocks of 100 (hi/lo):
+-- each nextval reserves [value, value + 100), so INCREMENT BY must match
+-- OrderIdAllocator.BLOCK_SIZE
+CREATE SEQUENCE FoodOrder_orderID_seq INCREMENT BY 100 OWNED BY FoodOrder.orderID;
 
 CREATE TABLE ItemsInOrder ( orderID integer NOT NULL,
                            itemName varchar(50) NOT NULL,
                            quantity integer NOT NULL,
+                           price decimal(10,2) NOT NULL, --the item price the order was placed at
                            PRIMARY KEY(orderID, itemName),
                            FOREIGN KEY(orderID) REFERENCES FoodOrder(orderID) ON DELETE CASCADE,
                            FOREIGN KEY(itemName) REFERENCES Items(itemName)
                            ON DELETE CASCADE
 );
 
+-- how far StaleOrderSweeper got, in (orderTimestamp, orderID) order
+CREATE TABLE SweepMark ( sweep varchar(50) NOT NULL,
+                         orderTimestamp timestamp NOT NULL,
+                         orderID integer NOT NULL,
+                         PRIMARY KEY(sweep)
+);
@@ -1,4 +1,5 @@
 /* Replace the location to where you saved the /home/csmajs/sduvv003/cs166_project_phase3/data files*/
+/* To load from the client instead, without copying the files to the database host, run java/scripts/load.sh */
 COPY Users
 FROM '/home/csmajs/sduvv003/cs166_project_phase3/data/users.csv'
 WITH DELIMITER ',' CSV HEADER;
@@ -11,10 +12,13 @@ COPY Store
 FROM '/home/csmajs/sduvv003/cs166_project_phase3/data/store.csv'
 WITH DELIMITER ',' CSV HEADER;
 
-COPY FoodOrder
+COPY FoodOrder (orderID, login, storeID, totalPrice, orderTimestamp, orderStatus)
 FROM '/home/csmajs/sduvv003/cs166_project_phase3/data/foodorder.csv'
 WITH DELIMITER ',' CSV HEADER;
 
 COPY ItemsInOrder
 FROM '/home/csmajs/sduvv003/cs166_project_phase3/data/itemsinorder.csv'
 WITH DELIMITER ',' CSV HEADER;
+
+/* Start handing out order ids after the loaded orders */
+SELECT setval('FoodOrder_orderID_seq', (SELECT COALESCE(MAX(orderID), 0) + 1 FROM FoodOrder), false);
@@ -29,24 +29,10 @@ END$$
 DELIMITER ;
 
 -- 2. Automatically Update Incomplete Orders
-DELIMITER $$
-
--- Stored Procedure to mark inactive orders
-CREATE PROCEDURE MarkInactiveOrders()
-BEGIN
-    UPDATE FoodOrder
-    SET orderStatus = 'incomplete'
-    WHERE orderStatus NOT IN ('complete', 'cancelled')
-      AND TIMESTAMPDIFF(DAY, orderTimestamp, NOW()) > 7;
-END$$
-
--- Trigger to execute the procedure on a specific event (optional: manual trigger)
-CREATE EVENT CheckInactiveOrders
-ON SCHEDULE EVERY 1 DAY
-DO
-    CALL MarkInactiveOrders();$$
-
-DELIMITER ;
+-- Done by StaleOrderSweeper in the application (-Dpizzastore.sweep.*): it
+-- walks foodorderTimestamp in small, throttled chunks from the mark saved in
+-- SweepMark and marks orders still active after 7 days 'incomplete', instead
+-- of one scheduled UPDATE over the whole of FoodOrder.
 
 -- 3. Log User Updates for Audit
 DELIMITER $$
@@ -63,32 +49,11 @@ END$$
 DELIMITER ;
 
 -- 4. Automatically Recalculate Total Order Price on Items Update
-DELIMITER $$
-
--- Stored Procedure to recalculate total price
-CREATE PROCEDURE RecalculateOrderTotal(
-    IN orderID INT
-)
-BEGIN
-    UPDATE FoodOrder
-    SET totalPrice = (
-        SELECT SUM(i.price * io.quantity)
-        FROM ItemsInOrder io
-        JOIN Items i ON io.itemName = i.itemName
-        WHERE io.orderID = orderID
-    )
-    WHERE orderID = orderID;
-END$$
-
--- Trigger to invoke recalculation after an item is added to an order
-CREATE TRIGGER RecalculateTotalTrigger
-AFTER INSERT ON ItemsInOrder
-FOR EACH ROW
-BEGIN
-    CALL RecalculateOrderTotal(NEW.orderID);
-END$$
-
-DELIMITER ;
+-- Done once per order by OrderWriter: each ItemsInOrder row keeps the price
+-- its item had on the menu snapshot the order was placed from, and
+-- FoodOrder.totalPrice is the sum of those lines, written with the order.
+-- Later menu price changes do not touch placed orders, so nothing has to
+-- be recalculated, and no per-row trigger re-sums the order on every line.
 
 -- 5. Prevent Deletion of Items with Active Orders
 DELIMITER $$